@@ -10,6 +10,7 @@ public class ProductAggregate {
     private final List<RecommendationSummary> recommendations;
     private final List<ReviewSummary> reviews;
     private final ServiceAddresses serviceAddresses;
+    private final boolean degraded;
 
     public ProductAggregate() {
         this.productId = 0;
@@ -18,16 +19,23 @@ public class ProductAggregate {
         this.recommendations = null;
         this.reviews = null;
         this.serviceAddresses = null;
+        this.degraded = false;
     }
 
     public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations,
             List<ReviewSummary> reviews, ServiceAddresses serviceAddresses) {
+        this(productId, name, weight, recommendations, reviews, serviceAddresses, false);
+    }
+
+    public ProductAggregate(int productId, String name, int weight, List<RecommendationSummary> recommendations,
+            List<ReviewSummary> reviews, ServiceAddresses serviceAddresses, boolean degraded) {
         this.productId = productId;
         this.name = name;
         this.weight = weight;
         this.recommendations = recommendations;
         this.reviews = reviews;
         this.serviceAddresses = serviceAddresses;
+        this.degraded = degraded;
     }
 
     public String getName() {
@@ -54,4 +62,12 @@ public class ProductAggregate {
         return serviceAddresses;
     }
 
+    /**
+     * @return true if the recommendations or reviews could not be fetched in
+     *         time, the missing parts are then null
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
 }
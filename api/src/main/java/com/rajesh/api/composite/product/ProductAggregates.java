@@ -0,0 +1,46 @@
+package com.rajesh.api.composite.product;
+
+import java.util.List;
+
+public class ProductAggregates {
+
+    private final List<ProductAggregate> products;
+    private final List<Integer> notFoundIds;
+    private final List<Integer> failedIds;
+
+    public ProductAggregates() {
+        this.products = null;
+        this.notFoundIds = null;
+        this.failedIds = null;
+    }
+
+    public ProductAggregates(List<ProductAggregate> products, List<Integer> notFoundIds, List<Integer> failedIds) {
+        this.products = products;
+        this.notFoundIds = notFoundIds;
+        this.failedIds = failedIds;
+    }
+
+    /**
+     * @return the aggregates of the products that were found, in the order they
+     *         were requested
+     */
+    public List<ProductAggregate> getProducts() {
+        return products;
+    }
+
+    /**
+     * @return the requested product ids that do not exist
+     */
+    public List<Integer> getNotFoundIds() {
+        return notFoundIds;
+    }
+
+    /**
+     * @return the requested product ids that could not be looked up, they may
+     *         or may not exist and can be requested again
+     */
+    public List<Integer> getFailedIds() {
+        return failedIds;
+    }
+
+}
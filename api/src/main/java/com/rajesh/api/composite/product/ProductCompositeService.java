@@ -1,14 +1,18 @@
 package com.rajesh.api.composite.product;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponses;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import io.swagger.annotations.ApiResponse;
 
@@ -29,7 +33,7 @@ public interface ProductCompositeService {
             @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
     })
     @PostMapping(value = "/product-composite", consumes = "application/json")
-    void createCompositeProduct(@RequestBody ProductAggregate body);
+    Mono<Void> createCompositeProduct(@RequestBody ProductAggregate body);
 
     /**
      * Sample usage: curl $HOST:$PORT/product-composite/1
@@ -41,11 +45,45 @@ public interface ProductCompositeService {
     @ApiResponses(value = {
             @ApiResponse(code = 400, message = "Bad Request, invalid format of the request. See response message for more information."),
             @ApiResponse(code = 404, message = "Not found, the specified id does not exist."),
-            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fails. See response message for more information.")
+            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fails. See response message for more information."),
+            @ApiResponse(code = 504, message = "Gateway timeout, the product service did not answer in time.")
     })
     @GetMapping(value = "/product-composite/{productId}", produces = "application/json")
     Mono<ProductAggregate> getCompositeProduct(@PathVariable int productId);
 
+    /**
+     * Sample usage: curl "$HOST:$PORT/product-composite?ids=1,2,3"
+     * 
+     * @param productIds
+     * @return the composite product info for the ids that were found, and the
+     *         ids that were not found or could not be looked up
+     */
+    @ApiOperation(value = "${api.product-composite.get-composite-products.description}", notes = "${api.product-composite.get-composite-products.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Bad Request, invalid format of the request. See response message for more information."),
+            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
+    })
+    @GetMapping(value = "/product-composite", params = "ids", produces = "application/json")
+    Mono<ProductAggregates> getCompositeProducts(@RequestParam(value = "ids", required = true) List<Integer> productIds);
+
+    /**
+     * Sample usage: curl "$HOST:$PORT/product-composite/export?resumeAfter=100"
+     * 
+     * @param resumeAfter the productId of the last aggregate received by an
+     *                    export that was broken off, 0 to start from the
+     *                    beginning
+     * @return the composite product info for all products, ordered by productId
+     *         and streamed as newline delimited JSON
+     */
+    @ApiOperation(value = "${api.product-composite.export-composite-products.description}", notes = "${api.product-composite.export-composite-products.notes}")
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Bad Request, invalid format of the request. See response message for more information."),
+            @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
+    })
+    @GetMapping(value = "/product-composite/export", produces = "application/x-ndjson")
+    Flux<ProductAggregate> exportCompositeProducts(
+            @RequestParam(value = "resumeAfter", required = false, defaultValue = "0") int resumeAfter);
+
     /**
      * Sample usage:
      *
@@ -59,6 +97,6 @@ public interface ProductCompositeService {
             @ApiResponse(code = 422, message = "Unprocessable entity, input parameters caused the processing to fail. See response message for more information.")
     })
     @DeleteMapping(value = "/product-composite/{productId}")
-    void deleteCompositeProduct(@PathVariable int productId);
+    Mono<Void> deleteCompositeProduct(@PathVariable int productId);
 
 }
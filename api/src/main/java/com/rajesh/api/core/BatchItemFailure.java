@@ -0,0 +1,29 @@
+package com.rajesh.api.core;
+
+public class BatchItemFailure {
+
+    private final int index;
+    private final String message;
+
+    public BatchItemFailure() {
+        this.index = 0;
+        this.message = null;
+    }
+
+    public BatchItemFailure(int index, String message) {
+        this.index = index;
+        this.message = message;
+    }
+
+    /**
+     * @return the position of the failed item in the posted list
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.rajesh.api.core;
+
+import java.util.List;
+
+public class BatchResult {
+
+    private final int created;
+    private final List<BatchItemFailure> failures;
+
+    public BatchResult() {
+        this.created = 0;
+        this.failures = null;
+    }
+
+    public BatchResult(int created, List<BatchItemFailure> failures) {
+        this.created = created;
+        this.failures = failures;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public List<BatchItemFailure> getFailures() {
+        return failures;
+    }
+
+}
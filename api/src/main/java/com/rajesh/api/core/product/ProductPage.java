@@ -0,0 +1,32 @@
+package com.rajesh.api.core.product;
+
+import java.util.List;
+
+public class ProductPage {
+
+    private final List<Product> products;
+    private final Integer nextAfterId;
+
+    public ProductPage() {
+        this.products = null;
+        this.nextAfterId = null;
+    }
+
+    public ProductPage(List<Product> products, Integer nextAfterId) {
+        this.products = products;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * @return the afterId to request the next page with, null if this is the
+     *         last page
+     */
+    public Integer getNextAfterId() {
+        return nextAfterId;
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.rajesh.api.core.product;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductService {
@@ -19,8 +23,9 @@ public interface ProductService {
      * @param body
      * @return
      */
-    @PostMapping(value = "/product", consumes = "application/json", produces = "application/json")
-    Product createProduct(@RequestBody Product body);
+    @PostMapping(value = "/product", consumes = { "application/json", "application/x-jackson-smile" },
+            produces = { "application/json", "application/x-jackson-smile" })
+    Mono<Product> createProduct(@RequestBody Product body);
 
     /**
      * Sample Usage:
@@ -29,15 +34,52 @@ public interface ProductService {
      * @param productId
      * @return the product, if found, else null
      */
-    @GetMapping(value = "/product/{productId}", produces = "application/json")
+    @GetMapping(value = "/product/{productId}", produces = { "application/json", "application/x-jackson-smile" })
     Mono<Product> getProduct(@PathVariable int productId);
 
+    /**
+     * Sample Usage:
+     * curl "$HOST:$PORT/product?productIds=1,2,3"
+     * 
+     * @param productIds
+     * @return the products found, ids without a product are left out
+     */
+    @GetMapping(value = "/product", params = "productIds",
+            produces = { "application/json", "application/x-jackson-smile" })
+    Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+    /**
+     * Sample Usage:
+     * curl "$HOST:$PORT/product?afterId=100&limit=50"
+     * 
+     * @param afterId the nextAfterId of the previous page, 0 for the first page
+     * @param limit   the max number of products in the page
+     * @return the products with a higher id than afterId, ordered by productId
+     */
+    @GetMapping(value = "/product", params = "limit", produces = { "application/json", "application/x-jackson-smile" })
+    Mono<ProductPage> getProductPage(
+            @RequestParam(value = "afterId", required = false, defaultValue = "0") int afterId,
+            @RequestParam(value = "limit", required = true) int limit);
+
+    /**
+     * Sample Usage:
+     * curl "$HOST:$PORT/product/stream?afterId=100"
+     * 
+     * @param afterId
+     * @return all products with a higher id than afterId, ordered by productId
+     *         and streamed as newline delimited JSON
+     */
+    @GetMapping(value = "/product/stream", produces = "application/x-ndjson")
+    Flux<Product> getProductStream(
+            @RequestParam(value = "afterId", required = false, defaultValue = "0") int afterId);
+
     /**
      * Sample Usage:
      * curl -X DELETE $HOST:$PORT/product/1
      * 
      * @param productId
+     * @return the number of deleted products, 0 if there was no such product
      */
-    @DeleteMapping(value = "/product/{productId}")
-    void deleteProduct(@PathVariable int productId);
+    @DeleteMapping(value = "/product/{productId}", produces = "application/json")
+    Mono<Long> deleteProduct(@PathVariable int productId);
 }
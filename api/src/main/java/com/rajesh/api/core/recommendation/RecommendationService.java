@@ -1,5 +1,9 @@
 package com.rajesh.api.core.recommendation;
 
+import java.util.List;
+
+import com.rajesh.api.core.BatchResult;
+
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -7,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface RecommendationService {
 
@@ -21,8 +26,25 @@ public interface RecommendationService {
      * @param body
      * @return
      */
-    @PostMapping(value = "/recommendation", consumes = "application/json", produces = "application/json")
-    Recommendation createRecommendation(@RequestBody Recommendation body);
+    @PostMapping(value = "/recommendation", consumes = { "application/json", "application/x-jackson-smile" },
+            produces = { "application/json", "application/x-jackson-smile" })
+    Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
+
+    /**
+     * Sample usage:
+     *
+     * curl -X POST $HOST:$PORT/recommendation/batch \
+     * -H "Content-Type: application/json" --data \
+     * '[{"productId":123,"recommendationId":456,"author":"me","rate":5,"content":"yada,
+     * yada, yada"}]'
+     *
+     * @param body
+     * @return the number of created recommendations and the items that failed,
+     *         e.g. because of a duplicate key
+     */
+    @PostMapping(value = "/recommendation/batch", consumes = { "application/json", "application/x-jackson-smile" },
+            produces = { "application/json", "application/x-jackson-smile" })
+    Mono<BatchResult> createRecommendations(@RequestBody List<Recommendation> body);
 
     /**
      * Sample usage:
@@ -32,17 +54,62 @@ public interface RecommendationService {
      * @param productId
      * @return
      */
-    @GetMapping(value = "/recommendation", produces = "application/json")
+    @GetMapping(value = "/recommendation", produces = { "application/json", "application/x-jackson-smile" })
     Flux<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
 
+    /**
+     * Sample usage:
+     *
+     * curl "$HOST:$PORT/recommendation?productId=1&sort=rating&limit=5"
+     *
+     * @param productId
+     * @param sort      the order of the recommendations, only "rating" (highest
+     *                  rate first) is supported
+     * @param limit     the max number of recommendations
+     * @return the top rated recommendations of the product
+     */
+    @GetMapping(value = "/recommendation", params = "limit",
+            produces = { "application/json", "application/x-jackson-smile" })
+    Flux<Recommendation> getTopRecommendations(
+            @RequestParam(value = "productId", required = true) int productId,
+            @RequestParam(value = "sort", required = false, defaultValue = "rating") String sort,
+            @RequestParam(value = "limit", required = true) int limit);
+
+    /**
+     * Sample usage:
+     *
+     * curl "$HOST:$PORT/recommendation?productIds=1,2,3"
+     *
+     * @param productIds
+     * @return
+     */
+    @GetMapping(value = "/recommendation", params = "productIds",
+            produces = { "application/json", "application/x-jackson-smile" })
+    Flux<Recommendation> getRecommendations(
+            @RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+    /**
+     * Sample usage:
+     *
+     * curl $HOST:$PORT/recommendation/stats?productId=1
+     *
+     * @param productId
+     * @return the count, sum, min, max and histogram of the rates of the
+     *         product's recommendations, a count of 0 if there are none
+     */
+    @GetMapping(value = "/recommendation/stats", produces = { "application/json", "application/x-jackson-smile" })
+    Mono<RecommendationStats> getRecommendationStats(
+            @RequestParam(value = "productId", required = true) int productId);
+
     /**
      * Sample usage:
      *
      * curl -X DELETE $HOST:$PORT/recommendation?productId=1
      *
      * @param productId
+     * @return the number of deleted recommendations
      */
-    @DeleteMapping(value = "/recommendation")
-    void deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
+    @DeleteMapping(value = "/recommendation", produces = "application/json")
+    Mono<Long> deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
 
 }
@@ -0,0 +1,71 @@
+package com.rajesh.api.core.recommendation;
+
+import java.util.Map;
+
+public class RecommendationStats {
+
+    private final int productId;
+    private final long count;
+    private final long rateSum;
+    private final Integer minRate;
+    private final Integer maxRate;
+    private final Map<Integer, Long> rateHistogram;
+    private final String serviceAddress;
+
+    public RecommendationStats() {
+        this.productId = 0;
+        this.count = 0;
+        this.rateSum = 0;
+        this.minRate = null;
+        this.maxRate = null;
+        this.rateHistogram = null;
+        this.serviceAddress = null;
+    }
+
+    public RecommendationStats(int productId, long count, long rateSum, Integer minRate, Integer maxRate,
+            Map<Integer, Long> rateHistogram, String serviceAddress) {
+        this.productId = productId;
+        this.count = count;
+        this.rateSum = rateSum;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.rateHistogram = rateHistogram;
+        this.serviceAddress = serviceAddress;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getRateSum() {
+        return rateSum;
+    }
+
+    public double getAverageRate() {
+        return count == 0 ? 0 : (double) rateSum / count;
+    }
+
+    public Integer getMinRate() {
+        return minRate;
+    }
+
+    public Integer getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * @return the number of recommendations per rate
+     */
+    public Map<Integer, Long> getRateHistogram() {
+        return rateHistogram;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.rajesh.api.core.review;
 
+import java.util.List;
+
+import com.rajesh.api.core.BatchResult;
+
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -7,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface ReviewService {
 
@@ -21,8 +26,25 @@ public interface ReviewService {
      * @param body
      * @return
      */
-    @PostMapping(value = "/review", consumes = "application/json", produces = "application/json")
-    Review createReview(@RequestBody Review body);
+    @PostMapping(value = "/review", consumes = { "application/json", "application/x-jackson-smile" },
+            produces = { "application/json", "application/x-jackson-smile" })
+    Mono<Review> createReview(@RequestBody Review body);
+
+    /**
+     * Sample usage:
+     *
+     * curl -X POST $HOST:$PORT/review/batch \
+     * -H "Content-Type: application/json" --data \
+     * '[{"productId":123,"reviewId":456,"author":"me","subject":"yada, yada,
+     * yada","content":"yada, yada, yada"}]'
+     *
+     * @param body
+     * @return the number of created reviews and the items that failed, e.g.
+     *         because of a duplicate key
+     */
+    @PostMapping(value = "/review/batch", consumes = { "application/json", "application/x-jackson-smile" },
+            produces = { "application/json", "application/x-jackson-smile" })
+    Mono<BatchResult> createReviews(@RequestBody List<Review> body);
 
     /**
      * Sample usage: curl $HOST:$PORT/review?productId=1
@@ -30,16 +52,37 @@ public interface ReviewService {
      * @param productId
      * @return
      */
-    @GetMapping(value = "/review", produces = "application/json")
+    @GetMapping(value = "/review", produces = { "application/json", "application/x-jackson-smile" })
     Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
 
+    /**
+     * Sample usage: curl "$HOST:$PORT/review?productIds=1,2,3"
+     *
+     * @param productIds
+     * @return
+     */
+    @GetMapping(value = "/review", params = "productIds",
+            produces = { "application/json", "application/x-jackson-smile" })
+    Flux<Review> getReviews(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
+
+    /**
+     * Sample usage: curl "$HOST:$PORT/review/stream?productId=1"
+     *
+     * @param productId
+     * @return the reviews of the product, streamed as newline delimited JSON
+     *         while they are read from the database
+     */
+    @GetMapping(value = "/review/stream", produces = "application/x-ndjson")
+    Flux<Review> getReviewStream(@RequestParam(value = "productId", required = true) int productId);
+
     /**
      * Sample usage:
      *
      * curl -X DELETE $HOST:$PORT/review?productId=1
      *
      * @param productId
+     * @return the number of deleted reviews
      */
-    @DeleteMapping(value = "/review")
-    void deleteReviews(@RequestParam(value = "productId", required = true) int productId);
+    @DeleteMapping(value = "/review", produces = "application/json")
+    Mono<Long> deleteReviews(@RequestParam(value = "productId", required = true) int productId);
 }
@@ -0,0 +1,49 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.util.List;
+
+import com.rajesh.api.composite.product.ProductAggregate;
+import com.rajesh.api.core.product.Product;
+import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.review.Review;
+import com.rajesh.util.http.ServiceUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Assembly of one ProductAggregate from a product and its recommendations and
+ * reviews, as done for every composite read.
+ */
+@State(Scope.Benchmark)
+public class AggregateAssemblyBenchmark {
+
+    @Param({ "0", "10", "100" })
+    int size;
+
+    private ProductCompositeServiceImpl service;
+    private Product product;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+
+    @Setup
+    public void setUp() {
+        // The integration is not used when assembling an aggregate
+        service = new ProductCompositeServiceImpl(new ServiceUtil("7000"), null, new SimpleMeterRegistry(), 500,
+                50, 4, 8, 100, 2);
+        product = BenchmarkData.product(1);
+        recommendations = BenchmarkData.recommendations(1, size);
+        reviews = BenchmarkData.reviews(1, size);
+    }
+
+    @Benchmark
+    public ProductAggregate createProductAggregate() {
+        return service.createProductAggregate(product, recommendations, reviews, "composite/10.0.0.4:8080");
+    }
+
+}
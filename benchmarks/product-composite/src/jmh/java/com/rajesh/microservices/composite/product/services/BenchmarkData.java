@@ -0,0 +1,46 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.rajesh.api.core.product.Product;
+import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.review.Review;
+
+final class BenchmarkData {
+
+    private static final String CONTENT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua.";
+
+    private BenchmarkData() {
+    }
+
+    static Product product(int productId) {
+        return new Product(productId, "Product " + productId, productId % 100, "product/10.0.0.1:8080");
+    }
+
+    static List<Product> products(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    static List<Recommendation> recommendations(int productId, int size) {
+        List<Recommendation> recommendations = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            recommendations.add(new Recommendation(productId, i, "Author " + i, i % 5, CONTENT,
+                    "recommendation/10.0.0.2:8080"));
+        }
+        return recommendations;
+    }
+
+    static List<Review> reviews(int productId, int size) {
+        List<Review> reviews = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            reviews.add(new Review(productId, i, "Author " + i, "Subject " + i, CONTENT, "review/10.0.0.3:8080"));
+        }
+        return reviews;
+    }
+}
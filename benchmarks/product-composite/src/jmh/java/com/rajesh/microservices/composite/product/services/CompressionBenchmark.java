@@ -0,0 +1,86 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * CPU spent on gzip compressing a review list response and on inflating it in
+ * the composite, at the default compression level of the server. The sizes
+ * of the payload before and after compression are reported as the
+ * payloadBytes and compressedBytes counters.
+ */
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({ "json", "smile" })
+    String format;
+
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    private byte[] payload;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = "smile".equals(format) ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        payload = mapper.writeValueAsBytes(BenchmarkData.reviews(1, size));
+        compressed = gzip();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        public long payloadBytes;
+        public long compressedBytes;
+
+        void record(byte[] payload, byte[] compressed) {
+            payloadBytes = payload.length;
+            compressedBytes = compressed.length;
+        }
+    }
+
+    @Benchmark
+    public byte[] compress(Sizes sizes) throws IOException {
+        sizes.record(payload, compressed);
+        return gzip();
+    }
+
+    @Benchmark
+    public byte[] decompress(Sizes sizes) throws IOException {
+        sizes.record(payload, compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = gzip.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] gzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.rajesh.microservices.composite.product.services;
+
+import static java.util.Collections.singletonMap;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rajesh.util.metrics.CallMetrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Mapping of error responses from the core services to the exceptions of the
+ * composite, including decoding of the error body.
+ */
+@State(Scope.Benchmark)
+public class ErrorMappingBenchmark {
+
+    private ProductCompositeIntegration integration;
+    private DownstreamWebClients webClients;
+
+    private WebClientResponseException notFound;
+    private WebClientResponseException unprocessableEntity;
+    private WebClientResponseException internalServerError;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> properties = new HashMap<>();
+        for (String service : new String[] { "product-service", "recommendation-service", "review-service" }) {
+            String prefix = "app." + service + ".http-client.";
+            properties.put(prefix + "max-connections", "10");
+            properties.put(prefix + "pending-acquire-max-count", "20");
+            properties.put(prefix + "pending-acquire-timeout", "2s");
+            properties.put(prefix + "max-idle-time", "30s");
+            properties.put(prefix + "max-life-time", "5m");
+            properties.put(prefix + "evict-in-background", "30s");
+            properties.put(prefix + "h2c", "false");
+            properties.put(prefix + "smile", "true");
+            properties.put(prefix + "compress", "true");
+        }
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setConversionService(new ApplicationConversionService());
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        webClients = new DownstreamWebClients(WebClient.builder(), environment);
+        CallMetrics callMetrics = new CallMetrics(
+                new StaticListableBeanFactory(singletonMap("registry", registry)).getBeanProvider(MeterRegistry.class));
+
+        integration = new ProductCompositeIntegration(webClients, mapper, registry, callMetrics,
+                "localhost", 7001, Duration.ofSeconds(2), Duration.ofMillis(200),
+                "localhost", 7002, Duration.ofSeconds(1), Duration.ofMillis(200), 0,
+                "localhost", 7003, Duration.ofSeconds(1), Duration.ofMillis(200),
+                10000, Duration.ofMinutes(10), Duration.ofMinutes(2),
+                Duration.ofMinutes(2));
+
+        notFound = error(HttpStatus.NOT_FOUND, "/product/13", "No product found for productId: 13");
+        unprocessableEntity = error(HttpStatus.UNPROCESSABLE_ENTITY, "/product/-1", "Invalid productId: -1");
+        internalServerError = error(HttpStatus.INTERNAL_SERVER_ERROR, "/product/1", "Internal Server Error");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        webClients.destroy();
+    }
+
+    @Benchmark
+    public Throwable mapNotFound() {
+        return integration.handleException(notFound);
+    }
+
+    @Benchmark
+    public Throwable mapUnprocessableEntity() {
+        return integration.handleException(unprocessableEntity);
+    }
+
+    @Benchmark
+    public Throwable mapInternalServerError() {
+        return integration.handleException(internalServerError);
+    }
+
+    private static WebClientResponseException error(HttpStatus status, String path, String message) {
+        String body = "{\"timestamp\":\"2021-04-01T10:15:30.000+00:00\",\"path\":\"" + path + "\",\"status\":\""
+                + status.name() + "\",\"message\":\"" + message + "\"}";
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), new HttpHeaders(),
+                body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rajesh.api.composite.product.ProductAggregate;
+import com.rajesh.api.core.product.Product;
+import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.review.Review;
+import com.rajesh.util.http.ServiceUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * JSON encoding and decoding of the core service payloads read by the
+ * composite, and encoding of the aggregate it responds with. Uses an
+ * ObjectMapper configured the way Spring Boot configures its codecs.
+ */
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    private static final TypeReference<List<Product>> PRODUCTS = new TypeReference<List<Product>>() {
+    };
+    private static final TypeReference<List<Recommendation>> RECOMMENDATIONS = new TypeReference<List<Recommendation>>() {
+    };
+    private static final TypeReference<List<Review>> REVIEWS = new TypeReference<List<Review>>() {
+    };
+
+    @Param({ "1", "10", "100", "1000" })
+    int size;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Product> products;
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+    private ProductAggregate aggregate;
+
+    private byte[] productsJson;
+    private byte[] recommendationsJson;
+    private byte[] reviewsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        products = BenchmarkData.products(size);
+        recommendations = BenchmarkData.recommendations(1, size);
+        reviews = BenchmarkData.reviews(1, size);
+        aggregate = new ProductCompositeServiceImpl(new ServiceUtil("7000"), null, new SimpleMeterRegistry(), 500,
+                50, 4, 8, 100, 2)
+                .createProductAggregate(BenchmarkData.product(1), recommendations, reviews, "composite/10.0.0.4:8080");
+
+        productsJson = mapper.writeValueAsBytes(products);
+        recommendationsJson = mapper.writeValueAsBytes(recommendations);
+        reviewsJson = mapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public byte[] encodeProducts() throws IOException {
+        return mapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public List<Product> decodeProducts() throws IOException {
+        return mapper.readValue(productsJson, PRODUCTS);
+    }
+
+    @Benchmark
+    public byte[] encodeRecommendations() throws IOException {
+        return mapper.writeValueAsBytes(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation> decodeRecommendations() throws IOException {
+        return mapper.readValue(recommendationsJson, RECOMMENDATIONS);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews() throws IOException {
+        return mapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> decodeReviews() throws IOException {
+        return mapper.readValue(reviewsJson, REVIEWS);
+    }
+
+    @Benchmark
+    public byte[] encodeProductAggregate() throws IOException {
+        return mapper.writeValueAsBytes(aggregate);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.review.Review;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JSON against Smile for the hops between the composite and the core services,
+ * per request the core service encodes a list and the composite decodes it.
+ * The payload size of each format is reported as the recommendationsBytes and
+ * reviewsBytes counters.
+ */
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<Recommendation>> RECOMMENDATIONS = new TypeReference<List<Recommendation>>() {
+    };
+    private static final TypeReference<List<Review>> REVIEWS = new TypeReference<List<Review>>() {
+    };
+
+    @Param({ "json", "smile" })
+    String format;
+
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    private ObjectMapper mapper;
+
+    private List<Recommendation> recommendations;
+    private List<Review> reviews;
+
+    private byte[] recommendationsPayload;
+    private byte[] reviewsPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = "smile".equals(format) ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+
+        recommendations = BenchmarkData.recommendations(1, size);
+        reviews = BenchmarkData.reviews(1, size);
+
+        recommendationsPayload = mapper.writeValueAsBytes(recommendations);
+        reviewsPayload = mapper.writeValueAsBytes(reviews);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        public long recommendationsBytes;
+        public long reviewsBytes;
+
+        void record(byte[] recommendationsPayload, byte[] reviewsPayload) {
+            recommendationsBytes = recommendationsPayload.length;
+            reviewsBytes = reviewsPayload.length;
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeRecommendations(Sizes sizes) throws IOException {
+        sizes.record(recommendationsPayload, reviewsPayload);
+        return mapper.writeValueAsBytes(recommendations);
+    }
+
+    @Benchmark
+    public List<Recommendation> decodeRecommendations(Sizes sizes) throws IOException {
+        sizes.record(recommendationsPayload, reviewsPayload);
+        return mapper.readValue(recommendationsPayload, RECOMMENDATIONS);
+    }
+
+    @Benchmark
+    public byte[] encodeReviews(Sizes sizes) throws IOException {
+        sizes.record(recommendationsPayload, reviewsPayload);
+        return mapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<Review> decodeReviews(Sizes sizes) throws IOException {
+        sizes.record(recommendationsPayload, reviewsPayload);
+        return mapper.readValue(reviewsPayload, REVIEWS);
+    }
+
+}
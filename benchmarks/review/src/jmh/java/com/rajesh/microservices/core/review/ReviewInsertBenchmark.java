@@ -0,0 +1,116 @@
+package com.rajesh.microservices.core.review;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import com.rajesh.microservices.core.review.persistence.ReviewEntity;
+import com.rajesh.microservices.core.review.persistence.ReviewStore;
+
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Time to insert 100k reviews with the JPA persistence, in transactions of
+ * 1000 reviews like a POST /review/batch. The database is an H2 behind a TCP
+ * server on localhost, so that every statement and id lookup is a round trip.
+ * A batchSize of 1 turns the JDBC batching of Hibernate off. The ids are
+ * reserved 50 at a time with pooled-lo, as mapped by ReviewEntity, or fetched
+ * one by one with none, as the plain @GeneratedValue did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ReviewInsertBenchmark {
+
+    private static final int REVIEWS = 100_000;
+    private static final int REVIEWS_PER_TRANSACTION = 1000;
+
+    @Param({ "1", "50" })
+    int batchSize;
+
+    @Param({ "pooled-lo", "none" })
+    String idOptimizer;
+
+    private Server server;
+    private ConfigurableApplicationContext context;
+    private ReviewStore store;
+    private JdbcTemplate jdbcTemplate;
+    private List<List<ReviewEntity>> transactions;
+
+    @Setup
+    public void start() throws SQLException {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:review-db",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize));
+        if ("none".equals(idOptimizer)) {
+            args.add("--spring.jpa.mapping-resources=META-INF/review-ids-unpooled.xml");
+        }
+        context = new SpringApplicationBuilder(ReviewServiceApplication.class)
+                .profiles("benchmark")
+                .run(args.toArray(new String[0]));
+        store = context.getBean(ReviewStore.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        jdbcTemplate.execute("DELETE FROM reviews");
+
+        // New entities for every iteration, the inserts assign their ids
+        transactions = new ArrayList<>();
+        for (int first = 0; first < REVIEWS; first += REVIEWS_PER_TRANSACTION) {
+            List<ReviewEntity> reviews = new ArrayList<>();
+            for (int i = first; i < first + REVIEWS_PER_TRANSACTION; i++) {
+                int productId = i / 10 + 1;
+                int reviewId = i % 10 + 1;
+                reviews.add(new ReviewEntity(productId, reviewId, "Author " + reviewId, "Subject " + reviewId,
+                        "Content " + reviewId));
+            }
+            transactions.add(reviews);
+        }
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public Integer insert() {
+        return Flux.fromIterable(transactions)
+                .concatMap(store::insertAll)
+                .then(store.findByProductId(1).count())
+                .map(Long::intValue)
+                .block();
+    }
+
+}
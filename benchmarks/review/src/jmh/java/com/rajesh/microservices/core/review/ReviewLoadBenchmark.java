@@ -0,0 +1,124 @@
+package com.rajesh.microservices.core.review;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.rajesh.api.core.review.Review;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads of the review service under load, with the JPA and with the R2DBC
+ * persistence. Every operation is one GET /review, CONCURRENCY of them are in
+ * flight at a time. The peakThreads counter is the peak number of live threads
+ * of the JVM, which runs both the service and the client. The service runs
+ * against an in-memory H2, where no query waits on I/O, so the thread count is
+ * the meaningful result; the throughput is only representative against a
+ * database over the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReviewLoadBenchmark {
+
+    private static final int CONCURRENCY = 256;
+    private static final int PRODUCTS = 100;
+    private static final int REVIEWS_PER_PRODUCT = 5;
+
+    @Param({ "jpa", "r2dbc" })
+    String persistence;
+
+    private ConfigurableApplicationContext context;
+    private WebClient client;
+
+    @Setup
+    public void start() {
+        // The r2dbc profile switches the service to R2DBC, the benchmark profile then points it at H2
+        context = new SpringApplicationBuilder(ReviewServiceApplication.class)
+                .profiles("jpa".equals(persistence) ? new String[] { "benchmark" }
+                        : new String[] { "r2dbc", "benchmark" })
+                .run();
+
+        int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+        client = WebClient.create("http://localhost:" + port);
+
+        Flux.range(1, PRODUCTS)
+                .concatMap(productId -> client.post()
+                        .uri("/review/batch")
+                        .bodyValue(reviews(productId))
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .blockLast();
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Threads {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        public long peakThreads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threads.resetPeakThreadCount();
+            peakThreads = 0;
+        }
+
+        void record() {
+            peakThreads = threads.getPeakThreadCount();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public String getReviews(Threads threads) {
+        String last = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> client.get()
+                        .uri("/review?productId={productId}", i % PRODUCTS + 1)
+                        .retrieve()
+                        .bodyToMono(String.class), CONCURRENCY)
+                .blockLast();
+        threads.record();
+        return last;
+    }
+
+    private static List<Review> reviews(int productId) {
+        return IntStream.rangeClosed(1, REVIEWS_PER_PRODUCT)
+                .mapToObj(reviewId -> new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId,
+                        "Content " + reviewId, "SA"))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.rajesh.microservices.core.review;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.rajesh.api.core.review.Review;
+import com.rajesh.microservices.core.review.persistence.ReviewEntity;
+import com.rajesh.microservices.core.review.persistence.ReviewRepository;
+import com.rajesh.microservices.core.review.persistence.ReviewRow;
+import com.rajesh.microservices.core.review.services.ReviewMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency and allocations of reading the reviews of a product over JPA, as
+ * managed entities mapped to the API, and as ReviewRows selected straight into
+ * the API shape. Against an in-memory H2, run with the gc profiler for the
+ * allocations per read: -prof gc, gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReviewReadBenchmark {
+
+    private static final int PRODUCT_ID = 1;
+
+    @Param({ "10", "100" })
+    int reviews;
+
+    private ConfigurableApplicationContext context;
+    private ReviewRepository repository;
+    private ReviewMapper mapper;
+
+    @Setup
+    public void start() {
+        context = new SpringApplicationBuilder(ReviewServiceApplication.class)
+                .profiles("benchmark")
+                .run();
+        repository = context.getBean(ReviewRepository.class);
+        mapper = context.getBean(ReviewMapper.class);
+
+        List<ReviewEntity> entities = new ArrayList<>();
+        for (int reviewId = 1; reviewId <= reviews; reviewId++) {
+            entities.add(new ReviewEntity(PRODUCT_ID, reviewId, "Author " + reviewId, "Subject " + reviewId,
+                    "Content " + reviewId));
+        }
+        repository.saveAll(entities);
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Review> entities() {
+        return mapper.entityListToApiList(repository.findByProductId(PRODUCT_ID));
+    }
+
+    @Benchmark
+    public List<ReviewRow> rows() {
+        return repository.findRowsByProductId(PRODUCT_ID);
+    }
+
+}
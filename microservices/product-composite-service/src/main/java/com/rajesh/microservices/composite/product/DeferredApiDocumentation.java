@@ -0,0 +1,34 @@
+package com.rajesh.microservices.composite.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import reactor.core.scheduler.Schedulers;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+/**
+ * Scans the controllers for the Swagger documentation in the background once
+ * the service is ready, instead of as part of the startup. Active when
+ * "springfox.documentation.auto-startup: false", as in the fast-startup
+ * profile, /v2/api-docs returns 404 until the scan is done.
+ */
+@Component
+@ConditionalOnProperty(name = "springfox.documentation.auto-startup", havingValue = "false")
+public class DeferredApiDocumentation {
+
+    private final DocumentationPluginsBootstrapper bootstrapper;
+
+    @Autowired
+    public DeferredApiDocumentation(DocumentationPluginsBootstrapper bootstrapper) {
+        this.bootstrapper = bootstrapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scanAfterStartup() {
+        Schedulers.boundedElastic().schedule(bootstrapper::start);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Creates one WebClient per downstream service, each with its own named
+ * connection pool so a slow service can only exhaust its own connections. The
+ * pool is configured under "app.&lt;service&gt;.http-client" and its usage is
+ * published as "reactor.netty.connection.provider.*" metrics tagged with the
+ * service name. With "smile" set the client asks for Smile (binary JSON)
+ * responses, with "compress" set for gzip compressed responses.
+ */
+@Component
+public class DownstreamWebClients implements DisposableBean {
+    private static final Logger LOG = LoggerFactory.getLogger(DownstreamWebClients.class);
+
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private final WebClient.Builder webClientBuilder;
+    private final Environment environment;
+
+    private final List<ConnectionProvider> connectionProviders = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public DownstreamWebClients(WebClient.Builder webClientBuilder, Environment environment) {
+        this.webClientBuilder = webClientBuilder;
+        this.environment = environment;
+    }
+
+    public WebClient create(String service) {
+        String prefix = "app." + service + ".http-client.";
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(service)
+                .maxConnections(environment.getRequiredProperty(prefix + "max-connections", Integer.class))
+                .pendingAcquireMaxCount(
+                        environment.getRequiredProperty(prefix + "pending-acquire-max-count", Integer.class))
+                .pendingAcquireTimeout(
+                        environment.getRequiredProperty(prefix + "pending-acquire-timeout", Duration.class))
+                .maxIdleTime(environment.getRequiredProperty(prefix + "max-idle-time", Duration.class))
+                .maxLifeTime(environment.getRequiredProperty(prefix + "max-life-time", Duration.class))
+                .evictInBackground(environment.getRequiredProperty(prefix + "evict-in-background", Duration.class))
+                .metrics(true)
+                .build();
+        connectionProviders.add(connectionProvider);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider);
+        if (environment.getRequiredProperty(prefix + "h2c", Boolean.class)) {
+            // Upgrades to HTTP/2 over plain text where the service supports it, so calls are
+            // multiplexed over fewer connections
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        if (environment.getRequiredProperty(prefix + "compress", Boolean.class)) {
+            // Sends Accept-Encoding: gzip and inflates compressed responses before they are decoded
+            httpClient = httpClient.compress(true);
+        }
+        LOG.debug("Created a connection pool for {}: {}", service, connectionProvider);
+
+        WebClient.Builder builder = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        if (environment.getRequiredProperty(prefix + "smile", Boolean.class)) {
+            // Binary JSON is smaller and cheaper to decode, JSON is still accepted from endpoints that
+            // do not produce Smile
+            builder.defaultHeader(HttpHeaders.ACCEPT, APPLICATION_SMILE_VALUE,
+                    MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void destroy() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+    }
+
+}
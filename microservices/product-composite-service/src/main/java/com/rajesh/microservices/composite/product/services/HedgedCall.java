@@ -0,0 +1,86 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.rajesh.util.exceptions.GatewayTimeoutException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs an idempotent downstream call with a deadline. A call that is still
+ * running when it passes the p95 latency seen so far, but never earlier than
+ * the configured hedge delay, gets a second identical request and the first
+ * one to answer wins. A call that passes its deadline fails with a
+ * GatewayTimeoutException, a 504 unless the caller can do without the result.
+ * Timeouts and hedges are counted as
+ * "composite.downstream.timeouts" and "composite.downstream.hedges" tagged
+ * with the call name.
+ */
+public class HedgedCall {
+
+    private final String name;
+    private final Duration timeout;
+    private final Duration minHedgeDelay;
+
+    private final Timer latency;
+    private final Counter timeouts;
+    private final Counter hedges;
+
+    public HedgedCall(String name, Duration timeout, Duration minHedgeDelay, MeterRegistry registry) {
+        this.name = name;
+        this.timeout = timeout;
+        this.minHedgeDelay = minHedgeDelay;
+        this.latency = Timer.builder("composite.downstream.latency").tag("call", name)
+                .publishPercentiles(0.95)
+                .register(registry);
+        this.timeouts = Counter.builder("composite.downstream.timeouts").tag("call", name).register(registry);
+        this.hedges = Counter.builder("composite.downstream.hedges").tag("call", name).register(registry);
+    }
+
+    public <V> Mono<V> call(Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Duration hedgeDelay = hedgeDelay();
+            Mono<V> primary = timed(call);
+            if (hedgeDelay.compareTo(timeout) >= 0) {
+                return primary;
+            }
+            Mono<V> hedge = Mono.delay(hedgeDelay).flatMap(tick -> {
+                hedges.increment();
+                return timed(call);
+            });
+            // The first signal wins, so a quick error from the primary is not masked by the hedge
+            return Mono.firstWithSignal(primary, hedge);
+        })
+                .timeout(timeout)
+                .onErrorMap(TimeoutException.class, ex -> {
+                    timeouts.increment();
+                    return new GatewayTimeoutException(
+                            name + " did not answer within " + timeout.toMillis() + " ms", ex);
+                });
+    }
+
+    Duration hedgeDelay() {
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            Duration p95 = Duration.ofNanos((long) percentile.value(TimeUnit.NANOSECONDS));
+            if (p95.compareTo(minHedgeDelay) > 0) {
+                return p95;
+            }
+        }
+        return minHedgeDelay;
+    }
+
+    private <V> Mono<V> timed(Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.get().doOnSuccess(v -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+}
@@ -1,26 +1,38 @@
 package com.rajesh.microservices.composite.product.services;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rajesh.api.core.BatchResult;
 import com.rajesh.api.core.product.Product;
+import com.rajesh.api.core.product.ProductPage;
 import com.rajesh.api.core.product.ProductService;
 import com.rajesh.api.core.recommendation.Recommendation;
 import com.rajesh.api.core.recommendation.RecommendationService;
+import com.rajesh.api.core.recommendation.RecommendationStats;
 import com.rajesh.api.core.review.Review;
 import com.rajesh.api.core.review.ReviewService;
+import com.rajesh.util.cache.ReadThroughCache;
 import com.rajesh.util.exceptions.InvalidInputException;
 import com.rajesh.util.exceptions.NotFoundException;
 import com.rajesh.util.http.HttpErrorInfo;
+import com.rajesh.util.metrics.CallMetrics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -28,156 +40,439 @@ import reactor.core.publisher.Mono;
 public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
     private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
 
-    private WebClient webClient;
+    private static final String METRIC_NAME = "integration.calls";
+
+    private static final MediaType SMILE = MediaType.valueOf(DownstreamWebClients.APPLICATION_SMILE_VALUE);
+
+    private final WebClient productClient;
+    private final WebClient recommendationClient;
+    private final WebClient reviewClient;
     private final ObjectMapper mapper;
+    private final ObjectMapper smileMapper;
+    private final CallMetrics callMetrics;
 
     private final String productServiceUrl;
     private final String recommendationServiceUrl;
     private final String reviewServiceUrl;
 
+    private final String productsByIdsUrl;
+    private final String productStreamUrl;
+    private final String productPageUrl;
+    private final String recommendationsByProductIdsUrl;
+    private final String recommendationStatsUrl;
+    private final String topRecommendationsUrl;
+    private final String reviewsByProductIdsUrl;
+    private final String reviewStreamUrl;
+
+    private final String recommendationsBatchUrl;
+    private final String reviewsBatchUrl;
+
+    private final ReadThroughCache<Tagged<Product>> productCache;
+    private final ReadThroughCache<Tagged<List<Recommendation>>> recommendationsCache;
+    private final ReadThroughCache<Tagged<List<Review>>> reviewsCache;
+
+    private final RevalidationCache<Product> productResponses;
+    private final RevalidationCache<List<Recommendation>> recommendationsResponses;
+    private final RevalidationCache<List<Review>> reviewsResponses;
+
+    private final HedgedCall productCall;
+    private final HedgedCall recommendationsCall;
+    private final HedgedCall reviewsCall;
+
+    private final int recommendationsTopN;
+
     @Autowired
     public ProductCompositeIntegration(
-            WebClient.Builder webClient,
+            DownstreamWebClients webClients,
             ObjectMapper mapper,
+            MeterRegistry meterRegistry,
+            CallMetrics callMetrics,
 
             @Value("${app.product-service.host}") String productServiceHost,
             @Value("${app.product-service.port}") int productServicePort,
+            @Value("${app.product-service.timeout}") Duration productServiceTimeout,
+            @Value("${app.product-service.hedge-after}") Duration productServiceHedgeAfter,
 
             @Value("${app.recommendation-service.host}") String recommendationServiceHost,
             @Value("${app.recommendation-service.port}") int recommendationServicePort,
+            @Value("${app.recommendation-service.timeout}") Duration recommendationServiceTimeout,
+            @Value("${app.recommendation-service.hedge-after}") Duration recommendationServiceHedgeAfter,
+            @Value("${app.recommendation-service.top-n}") int recommendationsTopN,
 
             @Value("${app.review-service.host}") String reviewServiceHost,
-            @Value("${app.review-service.port}") int reviewServicePort) {
-
-        this.webClient = webClient.build();
+            @Value("${app.review-service.port}") int reviewServicePort,
+            @Value("${app.review-service.timeout}") Duration reviewServiceTimeout,
+            @Value("${app.review-service.hedge-after}") Duration reviewServiceHedgeAfter,
+
+            @Value("${app.product-composite.cache.max-size}") long cacheMaxSize,
+            @Value("${app.product-composite.cache.product-ttl}") Duration productTtl,
+            @Value("${app.product-composite.cache.recommendations-ttl}") Duration recommendationsTtl,
+            @Value("${app.product-composite.cache.reviews-ttl}") Duration reviewsTtl) {
+
+        this.productClient = webClients.create("product-service");
+        this.recommendationClient = webClients.create("recommendation-service");
+        this.reviewClient = webClients.create("review-service");
         this.mapper = mapper;
+        this.smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        this.callMetrics = callMetrics;
 
         productServiceUrl = "http://" + productServiceHost + ":" + productServicePort + "/product/";
         recommendationServiceUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
                 + "/recommendation?productId=";
         reviewServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review?productId=";
+
+        productsByIdsUrl = "http://" + productServiceHost + ":" + productServicePort + "/product?productIds=";
+        productStreamUrl = "http://" + productServiceHost + ":" + productServicePort + "/product/stream?afterId=";
+        productPageUrl = "http://" + productServiceHost + ":" + productServicePort + "/product?afterId=";
+        recommendationsByProductIdsUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
+                + "/recommendation?productIds=";
+        topRecommendationsUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
+                + "/recommendation?sort=rating&limit=";
+        recommendationStatsUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
+                + "/recommendation/stats?productId=";
+        reviewsByProductIdsUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review?productIds=";
+        reviewStreamUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review/stream?productId=";
+
+        recommendationsBatchUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort
+                + "/recommendation/batch";
+        reviewsBatchUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review/batch";
+
+        productCache = new ReadThroughCache<>("products", productTtl, cacheMaxSize, meterRegistry);
+        recommendationsCache = new ReadThroughCache<>("recommendations", recommendationsTtl, cacheMaxSize,
+                meterRegistry);
+        reviewsCache = new ReadThroughCache<>("reviews", reviewsTtl, cacheMaxSize, meterRegistry);
+
+        productResponses = new RevalidationCache<>("getProduct", cacheMaxSize, meterRegistry);
+        recommendationsResponses = new RevalidationCache<>("getRecommendations", cacheMaxSize, meterRegistry);
+        reviewsResponses = new RevalidationCache<>("getReviews", cacheMaxSize, meterRegistry);
+
+        productCall = new HedgedCall("getProduct", productServiceTimeout, productServiceHedgeAfter, meterRegistry);
+        recommendationsCall = new HedgedCall("getRecommendations", recommendationServiceTimeout,
+                recommendationServiceHedgeAfter, meterRegistry);
+        reviewsCall = new HedgedCall("getReviews", reviewServiceTimeout, reviewServiceHedgeAfter, meterRegistry);
+
+        this.recommendationsTopN = recommendationsTopN;
     }
 
     @Override
-    public Product createProduct(Product body) {
-
-        String url = productServiceUrl;
-        LOG.debug("Will post a new product to URL:{}", url);
-
-        return webClient.post().uri(url)
-                .body(Mono.just(body), Product.class)
-                .retrieve()
-                .bodyToMono(Product.class)
-                .log()
-                .onErrorMap(error -> handleException(error))
-                .toProcessor()
-                .block();
-
+    public Mono<Product> createProduct(Product body) {
+        return callMetrics.timedMono(METRIC_NAME, "createProduct", () -> {
+            String url = productServiceUrl;
+            LOG.debug("Will post a new product to URL:{}", url);
+
+            return productClient.post().uri(url)
+                    .body(Mono.just(body), Product.class)
+                    .retrieve()
+                    .bodyToMono(Product.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> productCache.invalidate(body.getProductId()));
+        });
     }
 
     @Override
     public Mono<Product> getProduct(int productId) {
+        return getTaggedProduct(productId).map(Tagged::getBody);
+    }
 
+    /**
+     * Gets the product with the ETag of the product-service. Once the cached copy
+     * expires it is revalidated with a conditional request.
+     */
+    public Mono<Tagged<Product>> getTaggedProduct(int productId) {
         String url = productServiceUrl + productId;
-        LOG.debug("Will call getProduct API on URL: {}", url);
-
-        return webClient.get()
-                .uri(url).retrieve()
-                .bodyToMono(Product.class)
-                .log()
-                .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
 
+        // Only the calls that miss the cache are timed, hits would hide the latency of the product-service
+        return productCache.get(productId, () -> callMetrics.timedMono(METRIC_NAME, "getProduct",
+                () -> productCall.call(() -> productResponses.get(url, etag -> {
+                    LOG.debug("Will call getProduct API on URL: {}", url);
+                    return productClient.get()
+                            .uri(url)
+                            .headers(headers -> ifNoneMatch(headers, etag))
+                            .retrieve()
+                            .toEntity(Product.class)
+                            .log();
+                })).onErrorMap(WebClientResponseException.class, ex -> handleException(ex))));
     }
 
     @Override
-    public void deleteProduct(int productId) {
-        String url = productServiceUrl + "/" + productId;
-        LOG.debug("Will call the deleteProduct API on URL: {}", url);
-
-        webClient.delete().uri(url).retrieve().toBodilessEntity().log().onErrorMap(error -> handleException(error));
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getProducts", () -> {
+            String url = productsByIdsUrl + joinIds(productIds);
+            LOG.debug("Will call getProducts API on URL: {}", url);
+
+            return productClient.get()
+                    .uri(url).retrieve()
+                    .bodyToFlux(Product.class)
+                    .log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
+    }
 
+    @Override
+    public Mono<ProductPage> getProductPage(int afterId, int limit) {
+        return callMetrics.timedMono(METRIC_NAME, "getProductPage", () -> {
+            String url = productPageUrl + afterId + "&limit=" + limit;
+            LOG.debug("Will call getProductPage API on URL: {}", url);
+
+            return productClient.get()
+                    .uri(url).retrieve()
+                    .bodyToMono(ProductPage.class)
+                    .log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
     }
 
     @Override
-    public Recommendation createRecommendation(Recommendation body) {
+    public Flux<Product> getProductStream(int afterId) {
+        return callMetrics.timedFlux(METRIC_NAME, "getProductStream", () -> {
+            String url = productStreamUrl + afterId;
+            LOG.debug("Will call getProductStream API on URL: {}", url);
+
+            return productClient.get()
+                    .uri(url)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(Product.class)
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
+    }
 
-        String url = recommendationServiceUrl;
-        LOG.debug("Will post a new recommendation to URL: {}", url);
+    @Override
+    public Mono<Long> deleteProduct(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteProduct", () -> {
+            String url = productServiceUrl + productId;
+            LOG.debug("Will call the deleteProduct API on URL: {}", url);
+
+            return productClient.delete().uri(url)
+                    .retrieve()
+                    .bodyToMono(Long.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> productCache.invalidate(productId));
+        });
+    }
 
-        return webClient.post().uri(url)
-                .body(Mono.just(body), Recommendation.class)
-                .retrieve()
-                .bodyToMono(Recommendation.class)
-                .log()
-                .onErrorMap(error -> handleException(error))
-                .toProcessor()
-                .block();
+    @Override
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        return callMetrics.timedMono(METRIC_NAME, "createRecommendation", () -> {
+            String url = recommendationServiceUrl;
+            LOG.debug("Will post a new recommendation to URL: {}", url);
+
+            return recommendationClient.post().uri(url)
+                    .body(Mono.just(body), Recommendation.class)
+                    .retrieve()
+                    .bodyToMono(Recommendation.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> recommendationsCache.invalidate(body.getProductId()));
+        });
+    }
 
+    @Override
+    public Mono<BatchResult> createRecommendations(List<Recommendation> body) {
+        return callMetrics.timedMono(METRIC_NAME, "createRecommendations", () -> {
+            String url = recommendationsBatchUrl;
+            LOG.debug("Will post {} new recommendations to URL: {}", body.size(), url);
+
+            return recommendationClient.post().uri(url)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(BatchResult.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> body.forEach(r -> recommendationsCache.invalidate(r.getProductId())));
+        });
     }
 
     @Override
     public Flux<Recommendation> getRecommendations(int productId) {
+        return getTaggedRecommendations(productId).flatMapIterable(Tagged::getBody);
+    }
 
-        String url = recommendationServiceUrl + productId;
-        LOG.debug("Will call getRecommendations API on URL: {}", url);
-
-        return webClient.get().uri(url)
-                .retrieve()
-                .bodyToFlux(Recommendation.class).log()
-                .onErrorResume(error -> Flux.empty());
-
+    /**
+     * Gets the recommendations with the ETag of the recommendation-service. With
+     * a top-n configured, only the top-n best rated recommendations are fetched.
+     */
+    public Mono<Tagged<List<Recommendation>>> getTaggedRecommendations(int productId) {
+        String url = recommendationsTopN > 0
+                ? topRecommendationsUrl + recommendationsTopN + "&productId=" + productId
+                : recommendationServiceUrl + productId;
+
+        // Only the calls that miss the cache are timed
+        return recommendationsCache.get(productId, () -> callMetrics.timedMono(METRIC_NAME, "getRecommendations",
+                () -> recommendationsCall.call(() -> recommendationsResponses.get(url, etag -> {
+                    LOG.debug("Will call getRecommendations API on URL: {}", url);
+                    return recommendationClient.get().uri(url)
+                            .headers(headers -> ifNoneMatch(headers, etag))
+                            .retrieve()
+                            .toEntityList(Recommendation.class).log();
+                })).onErrorMap(WebClientResponseException.class, ex -> handleException(ex))));
     }
 
     @Override
-    public void deleteRecommendations(int productId) {
-        String url = recommendationServiceUrl + "?productId=" + productId;
-        LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
-
-        webClient.delete().uri(url).retrieve().toBodilessEntity().log().onErrorMap(error -> handleException(error));
+    public Flux<Recommendation> getTopRecommendations(int productId, String sort, int limit) {
+        return callMetrics.timedFlux(METRIC_NAME, "getTopRecommendations", () -> {
+            String url = recommendationServiceUrl + productId + "&sort=" + sort + "&limit=" + limit;
+            LOG.debug("Will call getTopRecommendations API on URL: {}", url);
+
+            return recommendationClient.get().uri(url)
+                    .retrieve()
+                    .bodyToFlux(Recommendation.class).log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
+    }
 
+    @Override
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getRecommendationsByProductIds", () -> {
+            String url = recommendationsByProductIdsUrl + joinIds(productIds);
+            LOG.debug("Will call getRecommendations API on URL: {}", url);
+
+            return recommendationClient.get().uri(url)
+                    .retrieve()
+                    .bodyToFlux(Recommendation.class).log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
     }
 
     @Override
-    public Review createReview(Review body) {
+    public Mono<RecommendationStats> getRecommendationStats(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "getRecommendationStats", () -> {
+            String url = recommendationStatsUrl + productId;
+            LOG.debug("Will call getRecommendationStats API on URL: {}", url);
+
+            return recommendationClient.get().uri(url)
+                    .retrieve()
+                    .bodyToMono(RecommendationStats.class).log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
+    }
 
-        String url = reviewServiceUrl;
-        LOG.debug("Will post a new review to URL: {}", url);
+    @Override
+    public Mono<Long> deleteRecommendations(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteRecommendations", () -> {
+            String url = recommendationServiceUrl + productId;
+            LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
+
+            return recommendationClient.delete().uri(url)
+                    .retrieve()
+                    .bodyToMono(Long.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> recommendationsCache.invalidate(productId));
+        });
+    }
 
-        return webClient.post().uri(url)
-                .body(Mono.just(body), Review.class)
-                .retrieve()
-                .bodyToMono(Review.class)
-                .log()
-                .onErrorMap(error -> handleException(error))
-                .toProcessor()
-                .block();
+    @Override
+    public Mono<Review> createReview(Review body) {
+        return callMetrics.timedMono(METRIC_NAME, "createReview", () -> {
+            String url = reviewServiceUrl;
+            LOG.debug("Will post a new review to URL: {}", url);
+
+            return reviewClient.post().uri(url)
+                    .body(Mono.just(body), Review.class)
+                    .retrieve()
+                    .bodyToMono(Review.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> reviewsCache.invalidate(body.getProductId()));
+        });
+    }
 
+    @Override
+    public Mono<BatchResult> createReviews(List<Review> body) {
+        return callMetrics.timedMono(METRIC_NAME, "createReviews", () -> {
+            String url = reviewsBatchUrl;
+            LOG.debug("Will post {} new reviews to URL: {}", body.size(), url);
+
+            return reviewClient.post().uri(url)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(BatchResult.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> body.forEach(r -> reviewsCache.invalidate(r.getProductId())));
+        });
     }
 
     @Override
     public Flux<Review> getReviews(int productId) {
+        return getTaggedReviews(productId).flatMapIterable(Tagged::getBody);
+    }
 
+    public Mono<Tagged<List<Review>>> getTaggedReviews(int productId) {
         String url = reviewServiceUrl + productId;
-        LOG.debug("Will call getReviews API on URL: {}", url);
 
-        return webClient.get()
-                .uri(url)
-                .retrieve()
-                .bodyToFlux(Review.class)
-                .log()
-                .onErrorResume(error -> Flux.empty());
+        // Only the calls that miss the cache are timed
+        return reviewsCache.get(productId, () -> callMetrics.timedMono(METRIC_NAME, "getReviews",
+                () -> reviewsCall.call(() -> reviewsResponses.get(url, etag -> {
+                    LOG.debug("Will call getReviews API on URL: {}", url);
+                    return reviewClient.get()
+                            .uri(url)
+                            .headers(headers -> ifNoneMatch(headers, etag))
+                            .retrieve()
+                            .toEntityList(Review.class)
+                            .log();
+                })).onErrorMap(WebClientResponseException.class, ex -> handleException(ex))));
+    }
+
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getReviewsByProductIds", () -> {
+            String url = reviewsByProductIdsUrl + joinIds(productIds);
+            LOG.debug("Will call getReviews API on URL: {}", url);
+
+            return reviewClient.get()
+                    .uri(url)
+                    .retrieve()
+                    .bodyToFlux(Review.class)
+                    .log()
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
     }
 
     @Override
-    public void deleteReviews(int productId) {
-        String url = reviewServiceUrl + "?productId=" + productId;
-        LOG.debug("Will call the deleteReviews API on URL: {}", url);
+    public Flux<Review> getReviewStream(int productId) {
+        return callMetrics.timedFlux(METRIC_NAME, "getReviewStream", () -> {
+            String url = reviewStreamUrl + productId;
+            LOG.debug("Will call getReviewStream API on URL: {}", url);
+
+            return reviewClient.get()
+                    .uri(url)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(Review.class)
+                    .onErrorMap(WebClientResponseException.class, ex -> handleException(ex));
+        });
+    }
 
-        webClient.delete().uri(url).retrieve().toBodilessEntity().log().onErrorMap(error -> handleException(error));
+    @Override
+    public Mono<Long> deleteReviews(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteReviews", () -> {
+            String url = reviewServiceUrl + productId;
+            LOG.debug("Will call the deleteReviews API on URL: {}", url);
+
+            return reviewClient.delete().uri(url)
+                    .retrieve()
+                    .bodyToMono(Long.class)
+                    .log()
+                    .onErrorMap(error -> handleException(error))
+                    .doFinally(signal -> reviewsCache.invalidate(productId));
+        });
+    }
+
+    private void ifNoneMatch(HttpHeaders headers, String etag) {
+        if (etag != null) {
+            headers.setIfNoneMatch(etag);
+        }
+    }
 
+    private String joinIds(List<Integer> productIds) {
+        return productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
     }
 
-    private Throwable handleException(Throwable ex) {
+    Throwable handleException(Throwable ex) {
 
         if (!(ex instanceof WebClientResponseException)) {
             LOG.warn("Got a unexpected error: {}, will rethrow it", ex.toString());
@@ -203,7 +498,9 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
 
     private String getErrorMessage(WebClientResponseException ex) {
         try {
-            return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
+            // Errors come back in the format that was asked for
+            ObjectMapper errorMapper = SMILE.isCompatibleWith(ex.getHeaders().getContentType()) ? smileMapper : mapper;
+            return errorMapper.readValue(ex.getResponseBodyAsByteArray(), HttpErrorInfo.class).getMessage();
         } catch (IOException iex) {
             return iex.getMessage();
         }
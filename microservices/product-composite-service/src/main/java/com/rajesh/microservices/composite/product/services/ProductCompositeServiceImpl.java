@@ -1,9 +1,16 @@
 package com.rajesh.microservices.composite.product.services;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.rajesh.api.composite.product.ProductAggregate;
+import com.rajesh.api.composite.product.ProductAggregates;
 import com.rajesh.api.composite.product.ProductCompositeService;
 import com.rajesh.api.composite.product.RecommendationSummary;
 import com.rajesh.api.composite.product.ReviewSummary;
@@ -11,13 +18,20 @@ import com.rajesh.api.composite.product.ServiceAddresses;
 import com.rajesh.api.core.product.Product;
 import com.rajesh.api.core.recommendation.Recommendation;
 import com.rajesh.api.core.review.Review;
+import com.rajesh.util.exceptions.InvalidInputException;
+import com.rajesh.util.http.ConditionalRequests;
+import com.rajesh.util.http.ETags;
 import com.rajesh.util.http.ServiceUtil;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -27,77 +41,259 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
     private final ServiceUtil serviceUtil;
     private ProductCompositeIntegration integration;
 
+    private final int batchMaxIds;
+    private final int batchChunkSize;
+    private final int batchConcurrency;
+    private final int createConcurrency;
+    private final int exportWindowSize;
+    private final int exportConcurrency;
+
+    private final RequestCoalescer<Tagged<ProductAggregate>> compositeProductRequests;
+
     @Autowired
-    public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+    public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration,
+            MeterRegistry meterRegistry,
+            @Value("${app.product-composite.batch.max-ids}") int batchMaxIds,
+            @Value("${app.product-composite.batch.chunk-size}") int batchChunkSize,
+            @Value("${app.product-composite.batch.concurrency}") int batchConcurrency,
+            @Value("${app.product-composite.create.concurrency}") int createConcurrency,
+            @Value("${app.product-composite.export.window-size}") int exportWindowSize,
+            @Value("${app.product-composite.export.concurrency}") int exportConcurrency) {
         this.serviceUtil = serviceUtil;
         this.integration = integration;
+        this.batchMaxIds = batchMaxIds;
+        this.batchChunkSize = batchChunkSize;
+        this.batchConcurrency = batchConcurrency;
+        this.createConcurrency = createConcurrency;
+        this.exportWindowSize = exportWindowSize;
+        this.exportConcurrency = exportConcurrency;
+        this.compositeProductRequests = new RequestCoalescer<>("getCompositeProduct", meterRegistry);
     }
 
     @Override
-    public void createCompositeProduct(ProductAggregate body) {
-
-        try {
+    public Mono<Void> createCompositeProduct(ProductAggregate body) {
 
-            LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
+        LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
 
-            Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
-            integration.createProduct(product);
+        Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
 
-            if (body.getRecommendations() != null) {
-                body.getRecommendations().forEach(r -> {
-                    Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(),
-                            r.getAuthor(), r.getRate(), r.getContent(), null);
-                    integration.createRecommendation(recommendation);
-                });
-            }
-
-            if (body.getReviews() != null) {
-                body.getReviews().forEach(r -> {
-                    Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(),
-                            r.getContent(), null);
-                    integration.createReview(review);
-                });
-            }
+        List<Mono<Void>> writes = new ArrayList<>();
 
-            LOG.debug("createCompositeProduct: composite entites created for productId: {}", body.getProductId());
+        if (body.getRecommendations() != null) {
+            body.getRecommendations().forEach(r -> {
+                Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(),
+                        r.getAuthor(), r.getRate(), r.getContent(), null);
+                writes.add(Mono.defer(() -> integration.createRecommendation(recommendation)).then());
+            });
+        }
 
-        } catch (RuntimeException re) {
-            LOG.warn("createCompositeProduct failed", re);
-            throw re;
+        if (body.getReviews() != null) {
+            body.getReviews().forEach(r -> {
+                Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(),
+                        r.getContent(), null);
+                writes.add(Mono.defer(() -> integration.createReview(review)).then());
+            });
         }
 
+        // The product is written first, then recommendations and reviews concurrently. All writes are
+        // attempted and their errors are reported together.
+        return Mono.defer(() -> integration.createProduct(product))
+                .thenMany(Flux.fromIterable(writes).flatMapDelayError(write -> write, createConcurrency, 1))
+                .then()
+                .onErrorMap(Exceptions::isMultiple, this::aggregateErrors)
+                .doOnSuccess(v -> LOG.debug("createCompositeProduct: composite entites created for productId: {}",
+                        body.getProductId()))
+                .doOnError(ex -> LOG.warn("createCompositeProduct failed: {}", ex.toString()));
     }
 
     @Override
     public Mono<ProductAggregate> getCompositeProduct(int productId) {
         LOG.debug("getCompositeProduct: lookup a product aggregate for productId: {}", productId);
-        return Mono.zip(
-                values -> createProductAggregate((Product) values[0],
-                        (List<Recommendation>) values[1], (List<Review>) values[2],
-                        serviceUtil.getServiceAddress()),
-                integration.getProduct(productId),
-                integration.getRecommendations(productId).collectList(),
-                integration.getReviews(productId).collectList())
+        // Concurrent requests for the same productId share one set of downstream calls
+        return compositeProductRequests.get(productId, () -> Mono.zip(
+                values -> createTaggedAggregate((Tagged<Product>) values[0],
+                        (Optional<Tagged<List<Recommendation>>>) values[1],
+                        (Optional<Tagged<List<Review>>>) values[2]),
+                integration.getTaggedProduct(productId),
+                optional(integration.getTaggedRecommendations(productId)),
+                optional(integration.getTaggedReviews(productId))))
+                .flatMap(aggregate -> ConditionalRequests.ifNoneMatch(aggregate.getETag(), aggregate.getBody()))
                 .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}",
                         ex.toString()))
                 .log();
     }
 
     @Override
-    public void deleteCompositeProduct(int productId) {
+    public Mono<ProductAggregates> getCompositeProducts(List<Integer> productIds) {
+        if (productIds.isEmpty() || productIds.size() > batchMaxIds)
+            throw new InvalidInputException("Expected 1 to " + batchMaxIds + " productIds, got: " + productIds.size());
+        for (int productId : productIds) {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+        }
+
+        LOG.debug("getCompositeProducts: lookup product aggregates for productIds: {}", productIds);
+
+        // Each chunk costs one call per core service, chunks are fetched concurrently but combined in order
+        return Flux.fromStream(productIds.stream().distinct())
+                .buffer(batchChunkSize)
+                .flatMapSequential(this::getCompositeProductChunk, batchConcurrency)
+                .collectList()
+                .map(this::combineChunks)
+                .log();
+    }
+
+    @Override
+    public Flux<ProductAggregate> exportCompositeProducts(int resumeAfter) {
+        if (resumeAfter < 0)
+            throw new InvalidInputException("Invalid resumeAfter: " + resumeAfter);
+
+        LOG.debug("exportCompositeProducts: exports product aggregates after productId: {}", resumeAfter);
+
+        // Products are read from the stream in windows and each window is joined with one call per
+        // core service. Only a bounded number of windows are in flight, the rest of the stream waits
+        // for the client to catch up.
+        return integration.getProductStream(resumeAfter)
+                .buffer(exportWindowSize)
+                .flatMapSequential(products -> joinRecommendationsAndReviews(
+                        products.stream().map(Product::getProductId).collect(Collectors.toList()),
+                        Mono.just(products)), exportConcurrency, 1)
+                .doOnError(ex -> LOG.warn("exportCompositeProducts failed: {}", ex.toString()));
+    }
+
+    @Override
+    public Mono<Void> deleteCompositeProduct(int productId) {
 
         LOG.debug("deleteCompositeProduct: Deletes a product aggregate for productId: {}", productId);
 
-        integration.deleteProduct(productId);
+        return Mono.defer(() -> integration.deleteProduct(productId))
+                .then(Mono.defer(() -> integration.deleteRecommendations(productId)))
+                .then(Mono.defer(() -> integration.deleteReviews(productId)))
+                .doOnSuccess(count -> LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}",
+                        productId))
+                .then();
+    }
 
-        integration.deleteRecommendations(productId);
+    /**
+     * Looks up a chunk of products. The ids that do not exist are reported as
+     * not found; if the products could not be fetched, all ids of the chunk are
+     * reported as failed, the other chunks are still returned.
+     */
+    private Mono<ProductAggregates> getCompositeProductChunk(List<Integer> productIds) {
+        return integration.getProducts(productIds).collectList()
+                .flatMap(products -> {
+                    Set<Integer> foundIds = products.stream().map(Product::getProductId).collect(Collectors.toSet());
+                    List<Integer> notFoundIds = productIds.stream().filter(id -> !foundIds.contains(id))
+                            .collect(Collectors.toList());
+                    if (!notFoundIds.isEmpty()) {
+                        LOG.info("getCompositeProducts: no products found for productIds: {}", notFoundIds);
+                    }
 
-        integration.deleteReviews(productId);
+                    return joinRecommendationsAndReviews(productIds, Mono.just(products))
+                            .collectList()
+                            .map(aggregates -> new ProductAggregates(aggregates, notFoundIds,
+                                    Collections.emptyList()));
+                })
+                .onErrorResume(ex -> {
+                    LOG.warn("getCompositeProducts: failed to get products for productIds: {}, {}", productIds,
+                            ex.toString());
+                    return Mono.just(new ProductAggregates(Collections.emptyList(), Collections.emptyList(),
+                            productIds));
+                });
+    }
+
+    private ProductAggregates combineChunks(List<ProductAggregates> chunks) {
+        List<ProductAggregate> products = new ArrayList<>();
+        List<Integer> notFoundIds = new ArrayList<>();
+        List<Integer> failedIds = new ArrayList<>();
+        for (ProductAggregates chunk : chunks) {
+            products.addAll(chunk.getProducts());
+            notFoundIds.addAll(chunk.getNotFoundIds());
+            failedIds.addAll(chunk.getFailedIds());
+        }
+        return new ProductAggregates(products, notFoundIds, failedIds);
+    }
+
+    /**
+     * Creates the aggregates for a chunk of products, with one call per core
+     * service for the recommendations and reviews of the whole chunk.
+     */
+    private Flux<ProductAggregate> joinRecommendationsAndReviews(List<Integer> productIds,
+            Mono<List<Product>> productList) {
+        String serviceAddress = serviceUtil.getServiceAddress();
+
+        return Mono.zip(
+                productList,
+                groupByProductId(integration.getRecommendations(productIds), Recommendation::getProductId),
+                groupByProductId(integration.getReviews(productIds), Review::getProductId))
+                .flatMapMany(values -> {
+                    List<Product> products = values.getT1();
+                    Map<Integer, List<Recommendation>> recommendations = values.getT2().orElse(null);
+                    Map<Integer, List<Review>> reviews = values.getT3().orElse(null);
+
+                    return Flux.fromIterable(products)
+                            .map(p -> createProductAggregate(p,
+                                    recommendations == null ? null
+                                            : recommendations.getOrDefault(p.getProductId(), Collections.emptyList()),
+                                    reviews == null ? null
+                                            : reviews.getOrDefault(p.getProductId(), Collections.emptyList()),
+                                    serviceAddress));
+                });
+    }
+
+    /**
+     * Groups the items per productId. A failing call gives an empty Optional, so
+     * the products in the chunk are still returned but without these items.
+     */
+    private <T> Mono<Optional<Map<Integer, List<T>>>> groupByProductId(Flux<T> items,
+            Function<T, Integer> productIdOf) {
+        return items.collect(Collectors.groupingBy(productIdOf))
+                .map(Optional::of)
+                .onErrorResume(ex -> {
+                    LOG.warn("Returns partial result, {}", ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    /**
+     * Wraps a call that the aggregate can do without. A failing or timed out call
+     * gives an empty Optional and a degraded aggregate.
+     */
+    private <T> Mono<Optional<T>> optional(Mono<T> call) {
+        return call
+                .map(Optional::of)
+                .onErrorResume(ex -> {
+                    LOG.warn("getCompositeProduct: returns a degraded result, {}", ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private Throwable aggregateErrors(Throwable multiple) {
+        List<Throwable> errors = Exceptions.unwrapMultiple(multiple);
+        String message = errors.stream().map(Throwable::getMessage).collect(Collectors.joining("; "));
+
+        RuntimeException aggregated = errors.stream().allMatch(e -> e instanceof InvalidInputException)
+                ? new InvalidInputException(message)
+                : new RuntimeException(errors.size() + " writes failed: " + message);
+        errors.forEach(aggregated::addSuppressed);
+        return aggregated;
+    }
 
-        LOG.debug("getCompositeProduct: aggregate entities deleted for productId: {}", productId);
+    /**
+     * Tags the aggregate with the combined ETags of its parts. A degraded
+     * aggregate is left untagged, so clients do not hold on to it.
+     */
+    private Tagged<ProductAggregate> createTaggedAggregate(Tagged<Product> product,
+            Optional<Tagged<List<Recommendation>>> recommendations, Optional<Tagged<List<Review>>> reviews) {
+        ProductAggregate aggregate = createProductAggregate(product.getBody(),
+                recommendations.map(Tagged::getBody).orElse(null), reviews.map(Tagged::getBody).orElse(null),
+                serviceUtil.getServiceAddress());
+        String etag = ETags.combine(product.getETag(), recommendations.map(Tagged::getETag).orElse(null),
+                reviews.map(Tagged::getETag).orElse(null));
+        return new Tagged<>(aggregate, etag);
     }
 
-    private ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations,
+    ProductAggregate createProductAggregate(Product product, List<Recommendation> recommendations,
             List<Review> reviews, String serviceAddress) {
 
         // 1 Set up product info
@@ -126,8 +322,9 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 
         ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress,
                 recommendationAddress);
+        boolean degraded = recommendations == null || reviews == null;
         return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries,
-                serviceAddresses);
+                serviceAddresses, degraded);
     }
 
 }
@@ -0,0 +1,63 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets concurrent subscribers for the same productId share a single call. The
+ * first subscriber starts the call, later subscribers join it while it is in
+ * flight and all of them get the same value or error. Once the call has
+ * completed the next subscriber starts a new one.
+ */
+public class RequestCoalescer<V> {
+
+    private final ConcurrentMap<Integer, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+    private final Counter coalesced;
+
+    public RequestCoalescer(String name, MeterRegistry registry) {
+        this.calls = Counter.builder("composite.requests.calls")
+                .description("Calls started for requests that could not join an in-flight call")
+                .tag("name", name)
+                .register(registry);
+        this.coalesced = Counter.builder("composite.requests.coalesced")
+                .description("Requests that joined an in-flight call for the same productId")
+                .tag("name", name)
+                .register(registry);
+        Gauge.builder("composite.requests.in-flight", inFlight, ConcurrentMap::size)
+                .description("Calls currently in flight")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    public Mono<V> get(int productId, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            Mono<V> started = share(productId, call);
+            Mono<V> running = inFlight.putIfAbsent(productId, started);
+            if (running != null) {
+                coalesced.increment();
+                return running;
+            }
+            calls.increment();
+            return started;
+        });
+    }
+
+    private Mono<V> share(int productId, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> shared = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(productId, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+
+}
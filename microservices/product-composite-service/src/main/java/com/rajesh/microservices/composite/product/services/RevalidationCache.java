@@ -0,0 +1,50 @@
+package com.rajesh.microservices.composite.product.services;
+
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded store of the last tagged response per URL. The request is given the
+ * ETag of the stored response, to be sent as If-None-Match, and a 304 Not
+ * Modified reply reuses the stored body instead of transferring it again.
+ * Reused responses are counted by "composite.downstream.not-modified".
+ */
+public class RevalidationCache<V> {
+
+    private final Cache<String, Tagged<V>> cache;
+    private final Counter notModified;
+
+    public RevalidationCache(String name, long maxSize, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.notModified = registry.counter("composite.downstream.not-modified", "call", name);
+    }
+
+    public Mono<Tagged<V>> get(String url, Function<String, Mono<ResponseEntity<V>>> request) {
+        return Mono.defer(() -> {
+            Tagged<V> last = cache.getIfPresent(url);
+            return request.apply(last == null ? null : last.getETag()).map(response -> {
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                    if (last == null)
+                        throw new IllegalStateException("Unexpected 304 Not Modified from URL: " + url);
+                    notModified.increment();
+                    return last;
+                }
+                Tagged<V> tagged = new Tagged<>(response.getBody(), response.getHeaders().getETag());
+                if (tagged.getETag() != null) {
+                    cache.put(url, tagged);
+                }
+                return tagged;
+            });
+        });
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.rajesh.microservices.composite.product.services;
+
+/**
+ * A response body together with the ETag it was served with, null if the
+ * response was not tagged.
+ */
+public class Tagged<V> {
+
+    private final V body;
+    private final String etag;
+
+    public Tagged(V body, String etag) {
+        this.body = body;
+        this.etag = etag;
+    }
+
+    public V getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+}
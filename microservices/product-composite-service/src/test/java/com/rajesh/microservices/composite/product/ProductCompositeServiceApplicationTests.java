@@ -1,8 +1,18 @@
 package com.rajesh.microservices.composite.product;
 
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.TimeoutException;
+
 import com.rajesh.api.composite.product.ProductAggregate;
 import com.rajesh.api.composite.product.RecommendationSummary;
 import com.rajesh.api.composite.product.ReviewSummary;
@@ -10,6 +20,8 @@ import com.rajesh.api.core.product.Product;
 import com.rajesh.api.core.recommendation.Recommendation;
 import com.rajesh.api.core.review.Review;
 import com.rajesh.microservices.composite.product.services.ProductCompositeIntegration;
+import com.rajesh.microservices.composite.product.services.Tagged;
+import com.rajesh.util.exceptions.GatewayTimeoutException;
 import com.rajesh.util.exceptions.InvalidInputException;
 import com.rajesh.util.exceptions.NotFoundException;
 
@@ -20,6 +32,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -27,6 +42,7 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
@@ -36,6 +52,12 @@ public class ProductCompositeServiceApplicationTests {
     private static final int PRODUCT_ID_OK = 1;
     private static final int PRODUCT_ID_NOT_FOUND = 2;
     private static final int PRODUCT_ID_INVALID = 3;
+    private static final int PRODUCT_ID_DEGRADED = 4;
+    private static final int PRODUCT_ID_FAILED = 5;
+    private static final int PRODUCT_ID_TIMEOUT = 6;
+
+    @Autowired
+    private ApplicationContext context;
 
     @Autowired
     private WebTestClient client;
@@ -45,19 +67,67 @@ public class ProductCompositeServiceApplicationTests {
 
     @Before
     public void setUp() {
-        when(compositeIntegration.getProduct(PRODUCT_ID_OK))
-                .thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
-        when(compositeIntegration.getRecommendations(PRODUCT_ID_OK)).thenReturn(Flux.fromIterable(
-                singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address"))));
-        when(compositeIntegration.getReviews(PRODUCT_ID_OK)).thenReturn(Flux.fromIterable(
-                singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"))));
-
-        when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
+        when(compositeIntegration.createProduct(any(Product.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(compositeIntegration.createRecommendation(any(Recommendation.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(compositeIntegration.createReview(any(Review.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        when(compositeIntegration.deleteProduct(anyInt())).thenReturn(Mono.just(1L));
+        when(compositeIntegration.deleteRecommendations(anyInt())).thenReturn(Mono.just(1L));
+        when(compositeIntegration.deleteReviews(anyInt())).thenReturn(Mono.just(1L));
+
+        when(compositeIntegration.getTaggedProduct(PRODUCT_ID_OK)).thenReturn(Mono.just(
+                new Tagged<>(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"), "W/\"p-0\"")));
+        when(compositeIntegration.getTaggedRecommendations(PRODUCT_ID_OK)).thenReturn(Mono.just(new Tagged<>(
+                singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")),
+                "W/\"r-0\"")));
+        when(compositeIntegration.getTaggedReviews(PRODUCT_ID_OK)).thenReturn(Mono.just(new Tagged<>(
+                singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")),
+                "W/\"v-0\"")));
+
+        when(compositeIntegration.getTaggedProduct(PRODUCT_ID_NOT_FOUND))
                 .thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
 
-        when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
+        when(compositeIntegration.getTaggedProduct(PRODUCT_ID_INVALID))
                 .thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
 
+        when(compositeIntegration.getTaggedProduct(PRODUCT_ID_DEGRADED)).thenReturn(Mono.just(
+                new Tagged<>(new Product(PRODUCT_ID_DEGRADED, "name", 1, "mock-address"), "W/\"p-0\"")));
+        when(compositeIntegration.getTaggedRecommendations(PRODUCT_ID_DEGRADED)).thenReturn(Mono.just(new Tagged<>(
+                singletonList(new Recommendation(PRODUCT_ID_DEGRADED, 1, "author", 1, "content", "mock address")),
+                "W/\"r-0\"")));
+        when(compositeIntegration.getTaggedReviews(PRODUCT_ID_DEGRADED))
+                .thenReturn(Mono.error(new TimeoutException("review-service did not answer in time")));
+
+        when(compositeIntegration.getTaggedProduct(PRODUCT_ID_TIMEOUT)).thenReturn(
+                Mono.error(new GatewayTimeoutException("getProduct did not answer within 2000 ms")));
+        when(compositeIntegration.getTaggedRecommendations(PRODUCT_ID_TIMEOUT)).thenReturn(Mono.never());
+        when(compositeIntegration.getTaggedReviews(PRODUCT_ID_TIMEOUT)).thenReturn(Mono.never());
+
+        when(compositeIntegration.getProducts(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+                .thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+        when(compositeIntegration.getRecommendations(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND)))
+                .thenReturn(Flux.error(new RuntimeException("recommendation-service unavailable")));
+        when(compositeIntegration.getReviews(asList(PRODUCT_ID_OK, PRODUCT_ID_NOT_FOUND))).thenReturn(
+                Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+        when(compositeIntegration.getProducts(singletonList(PRODUCT_ID_FAILED)))
+                .thenReturn(Flux.error(new TimeoutException("product-service did not answer in time")));
+
+    }
+
+    /**
+     * util's jar carries a component index, the composite ignores it and scans
+     * the classpath for its own and springfox's beans.
+     */
+    @Test
+    public void scansTheClasspathInsteadOfTheComponentIndex() {
+        assertTrue(SpringProperties.getFlag(CandidateComponentsIndexLoader.IGNORE_INDEX));
+        assertNull(CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader()));
+
+        assertTrue(context.containsBean("productCompositeServiceImpl"));
+        assertNotNull(context.getBean(DocumentationPluginsBootstrapper.class));
     }
 
     @Test
@@ -77,6 +147,57 @@ public class ProductCompositeServiceApplicationTests {
         postAndVerifyProduct(compositeProduct, HttpStatus.OK);
     }
 
+    @Test
+    public void createCompositeProductReportsAllFailedWrites() {
+        when(compositeIntegration.createRecommendation(any(Recommendation.class)))
+                .thenAnswer(invocation -> Mono.error(new InvalidInputException(
+                        "Duplicate key, Recommendation Id:" + invocation.<Recommendation>getArgument(0)
+                                .getRecommendationId())));
+
+        ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+                asList(new RecommendationSummary(1, "a", 1, "c"), new RecommendationSummary(2, "a", 1, "c")),
+                singletonList(new ReviewSummary(1, "a", "s", "c")), null);
+
+        client.post()
+                .uri("/product-composite")
+                .body(Mono.just(compositeProduct), ProductAggregate.class)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                .expectBody()
+                .jsonPath("$.message").value(containsString("Duplicate key, Recommendation Id:1"))
+                .jsonPath("$.message").value(containsString("Duplicate key, Recommendation Id:2"));
+    }
+
+    @Test
+    public void exportCompositeProducts() {
+        when(compositeIntegration.getProductStream(0)).thenReturn(Flux.just(
+                new Product(PRODUCT_ID_OK, "name", 1, "mock-address"),
+                new Product(PRODUCT_ID_NOT_FOUND, "name", 1, "mock-address")));
+
+        client.get()
+                .uri("/product-composite/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK)
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(ProductAggregate.class)
+                .value(aggregates -> {
+                    assertEquals(2, aggregates.size());
+                    assertEquals(PRODUCT_ID_NOT_FOUND, aggregates.get(1).getProductId());
+                    assertNull(aggregates.get(0).getRecommendations());
+                    assertEquals(1, aggregates.get(0).getReviews().size());
+                });
+    }
+
+    @Test
+    public void exportCompositeProductsInvalidResumeToken() {
+        client.get()
+                .uri("/product-composite/export?resumeAfter=-1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
     @Test
     public void deleteCompositeProduct() {
         ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
@@ -95,7 +216,50 @@ public class ProductCompositeServiceApplicationTests {
         getAndVerifyProduct(PRODUCT_ID_OK, HttpStatus.OK)
                 .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
                 .jsonPath("$.recommendations.length()").isEqualTo(1)
-                .jsonPath("$.reviews.length()").isEqualTo(1);
+                .jsonPath("$.reviews.length()").isEqualTo(1)
+                .jsonPath("$.degraded").isEqualTo(false);
+    }
+
+    @Test
+    public void getProductConditionally() {
+
+        String etag = getAndVerifyProduct(PRODUCT_ID_OK, HttpStatus.OK)
+                .returnResult().getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED)
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_OK)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch("W/\"other\"")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK)
+                .expectHeader().valueEquals("ETag", etag);
+    }
+
+    @Test
+    public void getProductDegraded() {
+
+        getAndVerifyProduct(PRODUCT_ID_DEGRADED, HttpStatus.OK)
+                .jsonPath("$.productId").isEqualTo(PRODUCT_ID_DEGRADED)
+                .jsonPath("$.recommendations.length()").isEqualTo(1)
+                .jsonPath("$.reviews").doesNotExist()
+                .jsonPath("$.degraded").isEqualTo(true);
+
+        client.get()
+                .uri("/product-composite/" + PRODUCT_ID_DEGRADED)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK)
+                .expectHeader().doesNotExist("ETag");
     }
 
     @Test
@@ -114,6 +278,59 @@ public class ProductCompositeServiceApplicationTests {
                 .jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
     }
 
+    @Test
+    public void getProductTimeout() {
+
+        getAndVerifyProduct(PRODUCT_ID_TIMEOUT, HttpStatus.GATEWAY_TIMEOUT)
+                .jsonPath("$.path").isEqualTo("/product-composite/" + PRODUCT_ID_TIMEOUT)
+                .jsonPath("$.message").isEqualTo("getProduct did not answer within 2000 ms");
+    }
+
+    @Test
+    public void getProductsByIds() {
+
+        client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_OK + "," + PRODUCT_ID_NOT_FOUND + "," + PRODUCT_ID_OK)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.products.length()").isEqualTo(1)
+                .jsonPath("$.products[0].productId").isEqualTo(PRODUCT_ID_OK)
+                .jsonPath("$.products[0].recommendations").doesNotExist()
+                .jsonPath("$.products[0].degraded").isEqualTo(true)
+                .jsonPath("$.products[0].reviews.length()").isEqualTo(1)
+                .jsonPath("$.notFoundIds.length()").isEqualTo(1)
+                .jsonPath("$.notFoundIds[0]").isEqualTo(PRODUCT_ID_NOT_FOUND)
+                .jsonPath("$.failedIds.length()").isEqualTo(0);
+    }
+
+    @Test
+    public void getProductsByIdsReportsFailedChunks() {
+
+        client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_FAILED)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.products.length()").isEqualTo(0)
+                .jsonPath("$.notFoundIds.length()").isEqualTo(0)
+                .jsonPath("$.failedIds[0]").isEqualTo(PRODUCT_ID_FAILED);
+    }
+
+    @Test
+    public void getProductsByIdsInvalidInput() {
+
+        client.get()
+                .uri("/product-composite?ids=" + PRODUCT_ID_OK + ",-1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid productId: -1");
+    }
+
     private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
         return client.get()
                 .uri("/product-composite/" + productId)
@@ -0,0 +1,42 @@
+package com.rajesh.microservices.composite.product.services;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+public class DownstreamWebClientsTests {
+
+    private final MockEnvironment environment = new MockEnvironment();
+    private final DownstreamWebClients webClients = new DownstreamWebClients(WebClient.builder(), environment);
+
+    @After
+    public void tearDown() {
+        webClients.destroy();
+    }
+
+    @Test
+    public void createsClientFromServiceSettings() {
+        environment.setConversionService(new ApplicationConversionService());
+        environment.withProperty("app.test-service.http-client.max-connections", "10")
+                .withProperty("app.test-service.http-client.pending-acquire-max-count", "20")
+                .withProperty("app.test-service.http-client.pending-acquire-timeout", "2s")
+                .withProperty("app.test-service.http-client.max-idle-time", "30s")
+                .withProperty("app.test-service.http-client.max-life-time", "5m")
+                .withProperty("app.test-service.http-client.evict-in-background", "30s")
+                .withProperty("app.test-service.http-client.h2c", "true")
+                .withProperty("app.test-service.http-client.smile", "true")
+                .withProperty("app.test-service.http-client.compress", "true");
+
+        assertNotNull(webClients.create("test-service"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsOnMissingServiceSettings() {
+        webClients.create("test-service");
+    }
+
+}
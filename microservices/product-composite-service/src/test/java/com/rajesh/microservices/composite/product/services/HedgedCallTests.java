@@ -0,0 +1,62 @@
+package com.rajesh.microservices.composite.product.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.rajesh.util.exceptions.GatewayTimeoutException;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class HedgedCallTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void hedgeAnswersForHungCall() {
+        HedgedCall call = new HedgedCall("test", Duration.ofSeconds(5), Duration.ofMillis(50), registry);
+
+        // The first request hangs, the hedged second request answers
+        StepVerifier.create(call.call(() -> calls.incrementAndGet() == 1 ? Mono.never() : Mono.just("value")))
+                .expectNext("value")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("composite.downstream.hedges").counter().count(), 0);
+        assertEquals(0.0, registry.get("composite.downstream.timeouts").counter().count(), 0);
+    }
+
+    @Test
+    public void timesOutWhenNoRequestAnswers() {
+        HedgedCall call = new HedgedCall("test", Duration.ofMillis(200), Duration.ofMillis(50), registry);
+
+        StepVerifier.create(call.call(() -> {
+            calls.incrementAndGet();
+            return Mono.never();
+        }))
+                .expectErrorMatches(ex -> ex instanceof GatewayTimeoutException
+                        && ex.getMessage().equals("test did not answer within 200 ms"))
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, registry.get("composite.downstream.timeouts").counter().count(), 0);
+    }
+
+    @Test
+    public void doesNotHedgeFastCalls() {
+        HedgedCall call = new HedgedCall("test", Duration.ofSeconds(5), Duration.ofMillis(500), registry);
+
+        StepVerifier.create(call.call(() -> Mono.fromCallable(calls::incrementAndGet)))
+                .expectNext(1)
+                .verifyComplete();
+
+        assertEquals(0.0, registry.get("composite.downstream.hedges").counter().count(), 0);
+    }
+
+}
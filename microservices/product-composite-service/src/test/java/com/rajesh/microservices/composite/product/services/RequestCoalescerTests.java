@@ -0,0 +1,54 @@
+package com.rajesh.microservices.composite.product.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RequestCoalescerTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestCoalescer<String> coalescer = new RequestCoalescer<>("test", registry);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void concurrentSubscribersShareOneCall() {
+        Mono<String> first = coalescer.get(1, () -> slowCall(Mono.just("value")));
+        Mono<String> second = coalescer.get(1, () -> slowCall(Mono.just("other")));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .expectNextMatches(values -> values.getT1().equals("value") && values.getT2().equals("value"))
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(1.0, registry.get("composite.requests.coalesced").counter().count(), 0.0);
+
+        // The call has completed, so the next subscriber starts a new one
+        StepVerifier.create(coalescer.get(1, () -> slowCall(Mono.just("next")))).expectNext("next")
+                .verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void errorsArePropagatedToAllSubscribers() {
+        Mono<String> failing = slowCall(Mono.error(new IllegalStateException("failed")));
+        Mono<String> first = coalescer.get(1, () -> failing);
+        Mono<String> second = coalescer.get(1, () -> failing);
+
+        StepVerifier.create(Mono.zipDelayError(first.materialize(), second.materialize()))
+                .expectNextMatches(signals -> signals.getT1().isOnError() && signals.getT2().isOnError())
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    private Mono<String> slowCall(Mono<String> result) {
+        return Mono.delay(Duration.ofMillis(100)).doOnSubscribe(s -> calls.incrementAndGet()).then(result);
+    }
+}
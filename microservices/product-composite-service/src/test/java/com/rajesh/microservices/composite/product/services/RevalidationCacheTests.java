@@ -0,0 +1,63 @@
+package com.rajesh.microservices.composite.product.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class RevalidationCacheTests {
+
+    private static final String URL = "http://product/1";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RevalidationCache<String> cache = new RevalidationCache<>("test", 10, registry);
+    private final List<String> sentETags = new ArrayList<>();
+
+    @Test
+    public void reusesTheLastBodyWhenNotModified() {
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.OK, "body-1", "W/\"1\"")))
+                .expectNextMatches(tagged -> tagged.getBody().equals("body-1")).verifyComplete();
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.NOT_MODIFIED, null, "W/\"1\"")))
+                .expectNextMatches(tagged -> tagged.getBody().equals("body-1")).verifyComplete();
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.OK, "body-2", "W/\"2\"")))
+                .expectNextMatches(tagged -> tagged.getETag().equals("W/\"2\"")).verifyComplete();
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.NOT_MODIFIED, null, "W/\"2\"")))
+                .expectNextMatches(tagged -> tagged.getBody().equals("body-2")).verifyComplete();
+
+        assertNull(sentETags.get(0));
+        assertEquals("W/\"1\"", sentETags.get(1));
+        assertEquals("W/\"1\"", sentETags.get(2));
+        assertEquals("W/\"2\"", sentETags.get(3));
+        assertEquals(2.0, registry.get("composite.downstream.not-modified").tag("call", "test").counter().count(),
+                0.0);
+    }
+
+    @Test
+    public void doesNotStoreUntaggedResponses() {
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.OK, "body-1", null)))
+                .expectNextCount(1).verifyComplete();
+        StepVerifier.create(cache.get(URL, etag -> respond(etag, HttpStatus.OK, "body-2", null)))
+                .expectNextCount(1).verifyComplete();
+
+        assertNull(sentETags.get(1));
+    }
+
+    private Mono<ResponseEntity<String>> respond(String ifNoneMatch, HttpStatus status, String body, String etag) {
+        sentETags.add(ifNoneMatch);
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        return Mono.just(new ResponseEntity<>(body, headers, status));
+    }
+}
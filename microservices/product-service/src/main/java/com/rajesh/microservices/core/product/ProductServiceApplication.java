@@ -7,9 +7,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
-import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.mapping.context.MappingContext;
 import org.springframework.data.mongodb.core.ReactiveMongoOperations;
@@ -19,6 +21,10 @@ import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import reactor.core.publisher.Flux;
+
 @SpringBootApplication
 @ComponentScan("com.rajesh")
 public class ProductServiceApplication {
@@ -36,7 +42,11 @@ public class ProductServiceApplication {
     @Autowired
     ReactiveMongoOperations mongoTemplate;
 
-    @EventListener(ContextRefreshedEvent.class)
+    /**
+     * Ensures the indices in the background once the service is ready, so the
+     * startup does not wait for Mongo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
     public void initIndicesAfterStartup() {
 
         MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoTemplate
@@ -44,7 +54,19 @@ public class ProductServiceApplication {
         IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
 
         ReactiveIndexOperations indexOps = mongoTemplate.indexOps(ProductEntity.class);
-        resolver.resolveIndexFor(ProductEntity.class).forEach(e -> indexOps.ensureIndex(e));
+        Flux.fromIterable(resolver.resolveIndexFor(ProductEntity.class))
+                .flatMap(indexOps::ensureIndex)
+                .subscribe(index -> LOG.debug("Ensured index: {}", index),
+                        e -> LOG.warn("Failed to ensure the indices: {}", e.toString()));
+    }
+
+    /**
+     * Times every Mongo command as "mongodb.driver.commands", tagged with the
+     * command, collection and status.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(MeterRegistry meterRegistry) {
+        return builder -> builder.addCommandListener(new MongoMetricsCommandListener(meterRegistry));
     }
 
 }
@@ -1,9 +1,21 @@
 package com.rajesh.microservices.core.product.persistence;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface ProductRepository extends ReactiveCrudRepository<ProductEntity, String> {
     Mono<ProductEntity> findByProductId(int productId);
+
+    Flux<ProductEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    Flux<ProductEntity> findByProductIdGreaterThanOrderByProductIdAsc(int productId);
+
+    Flux<ProductEntity> findByProductIdGreaterThanOrderByProductIdAsc(int productId, Pageable pageable);
+
+    Mono<Long> deleteByProductId(int productId);
 }
@@ -1,19 +1,28 @@
 package com.rajesh.microservices.core.product.services;
 
+import java.util.List;
+
 import com.rajesh.api.core.product.Product;
+import com.rajesh.api.core.product.ProductPage;
 import com.rajesh.api.core.product.ProductService;
 import com.rajesh.microservices.core.product.persistence.ProductEntity;
 import com.rajesh.microservices.core.product.persistence.ProductRepository;
 import com.rajesh.util.exceptions.InvalidInputException;
 import com.rajesh.util.exceptions.NotFoundException;
+import com.rajesh.util.http.ConditionalRequests;
+import com.rajesh.util.http.ETags;
 import com.rajesh.util.http.ServiceUtil;
+import com.rajesh.util.metrics.CallMetrics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -21,57 +30,129 @@ public class ProductServiceImpl implements ProductService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+    private static final String METRIC_NAME = "service.calls";
+
     private final ServiceUtil serviceUtil;
     private final ProductRepository repository;
     private final ProductMapper mapper;
+    private final CallMetrics callMetrics;
+
+    private final int pageMaxLimit;
 
     @Autowired
-    public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+    public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil,
+            CallMetrics callMetrics, @Value("${app.product.page.max-limit}") int pageMaxLimit) {
         this.repository = repository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.callMetrics = callMetrics;
+        this.pageMaxLimit = pageMaxLimit;
     }
 
     @Override
-    public Product createProduct(Product body) {
-        if (body.getProductId() < 1)
-            throw new InvalidInputException("Invalid ProductId:" + body.getProductId());
-
-        ProductEntity entity = mapper.apiToEntity(body);
-        Mono<Product> newEntity = repository.save(entity)
-                .log("Created a product with id " + body.getProductId())
-                .onErrorMap(DuplicateKeyException.class,
-                        ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
-                .map(e -> mapper.entityToApi(e));
-
-        return newEntity.toProcessor().block();
+    public Mono<Product> createProduct(Product body) {
+        return callMetrics.timedMono(METRIC_NAME, "createProduct", () -> {
+            if (body.getProductId() < 1)
+                throw new InvalidInputException("Invalid ProductId:" + body.getProductId());
+
+            ProductEntity entity = mapper.apiToEntity(body);
+            return repository.save(entity)
+                    .log("Created a product with id " + body.getProductId())
+                    .onErrorMap(DuplicateKeyException.class,
+                            ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
+                    .map(e -> mapper.entityToApi(e));
+        });
     }
 
     @Override
     public Mono<Product> getProduct(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid productId: " + productId);
-
-        return repository.findByProductId(productId)
-                .switchIfEmpty(Mono.error(new NotFoundException("No Product found for productId: " + productId)))
-                .log("Found product with id " + productId)
-                .map(e -> mapper.entityToApi(e))
-                .map(e -> {
-                    e.setServiceAddress(serviceUtil.getServiceAddress());
-                    return e;
-                });
+        return callMetrics.timedMono(METRIC_NAME, "getProduct", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
 
+            return repository.findByProductId(productId)
+                    .switchIfEmpty(Mono.error(new NotFoundException("No Product found for productId: " + productId)))
+                    .log("Found product with id " + productId)
+                    .flatMap(e -> ConditionalRequests.ifNoneMatch(ETags.of(e.getId(), e.getVersion()),
+                            mapper.entityToApi(e)))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
     }
 
     @Override
-    public void deleteProduct(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid ProductId: " + productId);
-
-        LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
-        repository.findByProductId(productId)
-                .log("Deleting the product with id" + productId)
-                .map(e -> repository.delete(e)).flatMap(e -> e).toProcessor()
-                .block();
+    public Flux<Product> getProducts(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getProducts", () -> {
+            if (productIds.isEmpty())
+                throw new InvalidInputException("No productIds given");
+            for (int productId : productIds) {
+                if (productId < 1)
+                    throw new InvalidInputException("Invalid productId: " + productId);
+            }
+
+            return repository.findByProductIdIn(productIds)
+                    .log("Found products with ids " + productIds)
+                    .map(e -> mapper.entityToApi(e))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
+    }
+
+    @Override
+    public Mono<ProductPage> getProductPage(int afterId, int limit) {
+        return callMetrics.timedMono(METRIC_NAME, "getProductPage", () -> {
+            if (afterId < 0)
+                throw new InvalidInputException("Invalid afterId: " + afterId);
+            if (limit < 1 || limit > pageMaxLimit)
+                throw new InvalidInputException("Expected a limit of 1 to " + pageMaxLimit + ", got: " + limit);
+
+            // Seeks to afterId on the productId index, one extra product tells if there is a next page
+            return repository.findByProductIdGreaterThanOrderByProductIdAsc(afterId, PageRequest.of(0, limit + 1))
+                    .map(e -> mapper.entityToApi(e))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    })
+                    .collectList()
+                    .map(products -> {
+                        if (products.size() <= limit) {
+                            return new ProductPage(products, null);
+                        }
+                        List<Product> page = products.subList(0, limit);
+                        return new ProductPage(page, page.get(limit - 1).getProductId());
+                    });
+        });
+    }
+
+    @Override
+    public Flux<Product> getProductStream(int afterId) {
+        return callMetrics.timedFlux(METRIC_NAME, "getProductStream", () -> {
+            if (afterId < 0)
+                throw new InvalidInputException("Invalid afterId: " + afterId);
+
+            // Backed by a Mongo cursor, documents are only fetched as fast as the client reads them
+            return repository.findByProductIdGreaterThanOrderByProductIdAsc(afterId)
+                    .map(e -> mapper.entityToApi(e))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
+    }
+
+    @Override
+    public Mono<Long> deleteProduct(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteProduct", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid ProductId: " + productId);
+
+            LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
+            return repository.deleteByProductId(productId)
+                    .log("Deleted the product with id " + productId);
+        });
     }
 }
@@ -1,10 +1,17 @@
 package com.rajesh.microservices.core.product;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Set;
+
 import com.rajesh.api.core.product.Product;
+import com.rajesh.microservices.core.product.persistence.ProductEntity;
 import com.rajesh.microservices.core.product.persistence.ProductRepository;
+import com.rajesh.microservices.core.product.services.ProductServiceImpl;
+import com.rajesh.util.http.GlobalControllerExceptionHandler;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,8 +19,12 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
@@ -23,6 +34,9 @@ import reactor.core.publisher.Mono;
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.data.mongodb.port: 0" })
 public class ProductServiceApplicationTests {
 
+    @Autowired
+    private ApplicationContext context;
+
     @Autowired
     private WebTestClient client;
 
@@ -34,6 +48,21 @@ public class ProductServiceApplicationTests {
         this.repository.deleteAll().block();
     }
 
+    /**
+     * The component index generated by the build is used whatever the profile,
+     * the service starts only if all of its beans are listed in it.
+     */
+    @Test
+    public void startsFromTheComponentIndex() {
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+        assertNotNull(index);
+
+        Set<String> components = index.getCandidateTypes("com.rajesh", Component.class.getName());
+        assertTrue(components.contains(ProductServiceImpl.class.getName()));
+        assertTrue(components.contains(GlobalControllerExceptionHandler.class.getName()));
+        assertTrue(context.containsBean("productServiceImpl"));
+    }
+
     @Test
     public void getProductById() {
         int productId = 1;
@@ -44,6 +73,78 @@ public class ProductServiceApplicationTests {
                 .jsonPath("$.productId", productId);
     }
 
+    @Test
+    public void getProductConditionally() {
+        int productId = 1;
+        postAndVerifyProduct(productId, HttpStatus.OK);
+
+        String etag = getAndVerifyProduct(productId, HttpStatus.OK)
+                .returnResult().getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        getConditionally(productId, etag).expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        ProductEntity entity = repository.findByProductId(productId).block();
+        entity.setName("n2");
+        repository.save(entity).block();
+
+        getConditionally(productId, etag).expectStatus().isEqualTo(HttpStatus.OK)
+                .expectBody().jsonPath("$.name").isEqualTo("n2");
+    }
+
+    @Test
+    public void getProductsByIds() {
+        postAndVerifyProduct(1, HttpStatus.OK);
+        postAndVerifyProduct(2, HttpStatus.OK);
+        postAndVerifyProduct(3, HttpStatus.OK);
+
+        getAndVerifyProduct("?productIds=1,3,13", HttpStatus.OK)
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getProductPages() {
+        for (int productId = 1; productId <= 5; productId++) {
+            postAndVerifyProduct(productId, HttpStatus.OK);
+        }
+
+        getAndVerifyProduct("?limit=2", HttpStatus.OK)
+                .jsonPath("$.products.length()").isEqualTo(2)
+                .jsonPath("$.products[0].productId").isEqualTo(1)
+                .jsonPath("$.nextAfterId").isEqualTo(2);
+
+        getAndVerifyProduct("?afterId=2&limit=3", HttpStatus.OK)
+                .jsonPath("$.products.length()").isEqualTo(3)
+                .jsonPath("$.products[0].productId").isEqualTo(3)
+                .jsonPath("$.nextAfterId").doesNotExist();
+    }
+
+    @Test
+    public void getProductPageInvalidLimit() {
+        getAndVerifyProduct("?limit=0", HttpStatus.UNPROCESSABLE_ENTITY)
+                .jsonPath("$.message").isEqualTo("Expected a limit of 1 to 1000, got: 0");
+    }
+
+    @Test
+    public void getProductStream() {
+        postAndVerifyProduct(3, HttpStatus.OK);
+        postAndVerifyProduct(1, HttpStatus.OK);
+        postAndVerifyProduct(2, HttpStatus.OK);
+
+        client.get()
+                .uri("/product/stream?afterId=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.OK)
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Product.class)
+                .value(products -> {
+                    assertEquals(2, products.size());
+                    assertEquals(2, products.get(0).getProductId());
+                    assertEquals(3, products.get(1).getProductId());
+                });
+    }
+
     @Test
     public void duplicateError() {
         int productId = 1;
@@ -63,10 +164,10 @@ public class ProductServiceApplicationTests {
         postAndVerifyProduct(productId, HttpStatus.OK);
         assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
-        deleteAndVerify(productId, HttpStatus.OK);
+        deleteAndVerify(productId, HttpStatus.OK).json("1");
         assertFalse(repository.findByProductId(productId).blockOptional().isPresent());
 
-        deleteAndVerify(productId, HttpStatus.OK);
+        deleteAndVerify(productId, HttpStatus.OK).json("0");
     }
 
     @Test
@@ -108,6 +209,14 @@ public class ProductServiceApplicationTests {
                 .expectBody();
     }
 
+    private WebTestClient.ResponseSpec getConditionally(int productId, String etag) {
+        return client.get()
+                .uri("/product/" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange();
+    }
+
     private WebTestClient.BodyContentSpec postAndVerifyProduct(int productId, HttpStatus expectedStatus) {
         Product product = new Product(productId, "Name " + productId, productId, "SA");
         return client.post()
@@ -0,0 +1,18 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+public interface RecommendationBulkOperations {
+
+    /**
+     * Inserts all entities with one unordered bulk write, a duplicate key does
+     * not stop the rest of the entities from being inserted.
+     *
+     * @param entities
+     * @return the positions in <code>entities</code> that were rejected as
+     *         duplicates
+     */
+    Mono<List<Integer>> insertAllSkippingDuplicates(List<RecommendationEntity> entities);
+}
@@ -0,0 +1,58 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+
+import reactor.core.publisher.Mono;
+
+class RecommendationBulkOperationsImpl implements RecommendationBulkOperations {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    @Autowired
+    RecommendationBulkOperationsImpl(ReactiveMongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Mono<List<Integer>> insertAllSkippingDuplicates(List<RecommendationEntity> entities) {
+        if (entities.isEmpty())
+            return Mono.just(Collections.emptyList());
+
+        List<Document> documents = entities.stream().map(this::toDocument).collect(toList());
+
+        // Goes to the driver collection directly, the template would translate the
+        // bulk write exception and lose the index of each failed insert
+        return mongoOperations.getCollection(mongoOperations.getCollectionName(RecommendationEntity.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .then(Mono.just(Collections.<Integer>emptyList()))
+                .onErrorResume(MongoBulkWriteException.class, ex -> {
+                    if (!onlyDuplicateKeys(ex.getWriteErrors()))
+                        return Mono.error(ex);
+                    return Mono.just(ex.getWriteErrors().stream().map(BulkWriteError::getIndex).collect(toList()));
+                });
+    }
+
+    private boolean onlyDuplicateKeys(List<BulkWriteError> errors) {
+        return errors.stream()
+                .allMatch(e -> ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY);
+    }
+
+    private Document toDocument(RecommendationEntity entity) {
+        entity.setVersion(0);
+        Document document = new Document();
+        mongoOperations.getConverter().write(entity, document);
+        return document;
+    }
+}
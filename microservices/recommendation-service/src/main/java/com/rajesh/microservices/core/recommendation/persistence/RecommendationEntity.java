@@ -3,10 +3,14 @@ package com.rajesh.microservices.core.recommendation.persistence;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "recommendations")
-@CompoundIndex(name = "prod-rec-id", unique = true, def = "{'productId':1,'recommendationId':1}")
+@CompoundIndexes({
+        @CompoundIndex(name = "prod-rec-id", unique = true, def = "{'productId':1,'recommendationId':1}"),
+        @CompoundIndex(name = "prod-rating", def = "{'productId':1,'rating':-1}")
+})
 public class RecommendationEntity {
 
     @Id
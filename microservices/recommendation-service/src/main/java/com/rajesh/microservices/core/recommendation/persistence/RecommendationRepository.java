@@ -1,10 +1,26 @@
 package com.rajesh.microservices.core.recommendation.persistence;
 
+import java.util.Collection;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String> {
+public interface RecommendationRepository
+        extends ReactiveCrudRepository<RecommendationEntity, String>, RecommendationBulkOperations {
 
     Flux<RecommendationEntity> findByProductId(int productId);
+
+    Flux<RecommendationEntity> findByProductIdOrderByRatingDesc(int productId, Pageable pageable);
+
+    Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * Removes the recommendations of the product with one deleteMany.
+     *
+     * @return the number of deleted recommendations
+     */
+    Mono<Long> deleteByProductId(int productId);
 }
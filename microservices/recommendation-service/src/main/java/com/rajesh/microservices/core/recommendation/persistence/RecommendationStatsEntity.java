@@ -0,0 +1,85 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Rating statistics of the recommendations of one product. Kept up to date by
+ * {@link RecommendationStatsOperations} as recommendations are created and
+ * deleted, so they never have to be computed from the recommendations.
+ */
+@Document(collection = "recommendation_stats")
+public class RecommendationStatsEntity {
+
+    @Id
+    private int productId;
+
+    private long count;
+    private long ratingSum;
+    private Integer minRating;
+    private Integer maxRating;
+
+    /**
+     * Number of recommendations per rating, keyed by the rating as Mongo field
+     * names have to be strings
+     */
+    private Map<String, Long> ratingHistogram = new HashMap<>();
+
+    public RecommendationStatsEntity() {
+    }
+
+    public RecommendationStatsEntity(int productId) {
+        this.productId = productId;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public Integer getMinRating() {
+        return minRating;
+    }
+
+    public void setMinRating(Integer minRating) {
+        this.minRating = minRating;
+    }
+
+    public Integer getMaxRating() {
+        return maxRating;
+    }
+
+    public void setMaxRating(Integer maxRating) {
+        this.maxRating = maxRating;
+    }
+
+    public Map<String, Long> getRatingHistogram() {
+        return ratingHistogram;
+    }
+
+    public void setRatingHistogram(Map<String, Long> ratingHistogram) {
+        this.ratingHistogram = ratingHistogram;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import java.util.List;
+
+import reactor.core.publisher.Mono;
+
+public interface RecommendationStatsOperations {
+
+    /**
+     * Adds the ratings of newly created recommendations to the statistics of a
+     * product with one atomic update. A product without statistics, one whose
+     * recommendations were created before they were kept, gets them computed
+     * from its recommendations instead, so they include these ratings.
+     *
+     * @param productId
+     * @param ratings
+     */
+    Mono<Void> addRatings(int productId, List<Integer> ratings);
+
+    /**
+     * Computes the statistics of a product from its recommendations, with one
+     * $group aggregation, and replaces the stored statistics with them. The
+     * statistics of a product without recommendations are removed.
+     *
+     * @param productId
+     * @return the statistics, empty ones for a product without recommendations
+     */
+    Mono<RecommendationStatsEntity> recomputeStats(int productId);
+}
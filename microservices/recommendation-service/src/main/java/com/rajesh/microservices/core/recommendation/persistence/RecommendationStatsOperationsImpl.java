@@ -0,0 +1,92 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Update;
+
+import reactor.core.publisher.Mono;
+
+class RecommendationStatsOperationsImpl implements RecommendationStatsOperations {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    @Autowired
+    RecommendationStatsOperationsImpl(ReactiveMongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Mono<Void> addRatings(int productId, List<Integer> ratings) {
+        if (ratings.isEmpty())
+            return Mono.empty();
+
+        Update update = new Update()
+                .inc("count", ratings.size())
+                .inc("ratingSum", ratings.stream().mapToLong(Integer::longValue).sum())
+                .min("minRating", Collections.min(ratings))
+                .max("maxRating", Collections.max(ratings));
+
+        Map<Integer, Long> histogram = ratings.stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        histogram.forEach((rating, count) -> update.inc("ratingHistogram." + rating, count));
+
+        // Only updates existing statistics, a partial document must not be created for a product that
+        // has older recommendations
+        return mongoOperations.updateFirst(query(where("productId").is(productId)), update,
+                RecommendationStatsEntity.class)
+                .flatMap(result -> result.getMatchedCount() > 0 ? Mono.empty() : recomputeStats(productId))
+                .then();
+    }
+
+    /**
+     * A write that lands between the aggregation and the replace is lost from
+     * the statistics until they are recomputed again. This only happens when
+     * the statistics of a product are created or its recommendations deleted.
+     */
+    @Override
+    public Mono<RecommendationStatsEntity> recomputeStats(int productId) {
+        TypedAggregation<RecommendationEntity> ratingCounts = newAggregation(RecommendationEntity.class,
+                match(where("productId").is(productId)),
+                group("rating").count().as("count"));
+
+        return mongoOperations.aggregate(ratingCounts, Document.class)
+                .collectMap(d -> d.getInteger("_id"), d -> ((Number) d.get("count")).longValue())
+                .flatMap(histogram -> {
+                    if (histogram.isEmpty()) {
+                        return mongoOperations.remove(query(where("productId").is(productId)),
+                                RecommendationStatsEntity.class)
+                                .thenReturn(new RecommendationStatsEntity(productId));
+                    }
+                    return mongoOperations.save(toStats(productId, histogram));
+                });
+    }
+
+    private RecommendationStatsEntity toStats(int productId, Map<Integer, Long> histogram) {
+        RecommendationStatsEntity stats = new RecommendationStatsEntity(productId);
+        Map<String, Long> ratingHistogram = new HashMap<>();
+        histogram.forEach((rating, count) -> {
+            stats.setCount(stats.getCount() + count);
+            stats.setRatingSum(stats.getRatingSum() + rating * count);
+            ratingHistogram.put(String.valueOf(rating), count);
+        });
+        stats.setMinRating(Collections.min(histogram.keySet()));
+        stats.setMaxRating(Collections.max(histogram.keySet()));
+        stats.setRatingHistogram(ratingHistogram);
+        return stats;
+    }
+}
@@ -0,0 +1,7 @@
+package com.rajesh.microservices.core.recommendation.persistence;
+
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+public interface RecommendationStatsRepository
+        extends ReactiveCrudRepository<RecommendationStatsEntity, Integer>, RecommendationStatsOperations {
+}
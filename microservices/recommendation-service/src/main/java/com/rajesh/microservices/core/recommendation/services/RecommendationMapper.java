@@ -1,9 +1,13 @@
 package com.rajesh.microservices.core.recommendation.services;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.recommendation.RecommendationStats;
 import com.rajesh.microservices.core.recommendation.persistence.RecommendationEntity;
+import com.rajesh.microservices.core.recommendation.persistence.RecommendationStatsEntity;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mappings;
@@ -28,4 +32,11 @@ public interface RecommendationMapper {
     List<Recommendation> entityListToApiList(List<RecommendationEntity> entity);
 
     List<RecommendationEntity> apiListToEntityList(List<Recommendation> api);
+
+    default RecommendationStats statsEntityToApi(RecommendationStatsEntity entity, String serviceAddress) {
+        Map<Integer, Long> rateHistogram = new TreeMap<>();
+        entity.getRatingHistogram().forEach((rating, count) -> rateHistogram.put(Integer.valueOf(rating), count));
+        return new RecommendationStats(entity.getProductId(), entity.getCount(), entity.getRatingSum(),
+                entity.getMinRating(), entity.getMaxRating(), rateHistogram, serviceAddress);
+    }
 }
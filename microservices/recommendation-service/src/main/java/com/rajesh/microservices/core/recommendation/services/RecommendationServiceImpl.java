@@ -1,16 +1,35 @@
 package com.rajesh.microservices.core.recommendation.services;
 
+import static java.util.Collections.singletonList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.rajesh.api.core.BatchItemFailure;
+import com.rajesh.api.core.BatchResult;
 import com.rajesh.api.core.recommendation.Recommendation;
 import com.rajesh.api.core.recommendation.RecommendationService;
+import com.rajesh.api.core.recommendation.RecommendationStats;
 import com.rajesh.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.rajesh.microservices.core.recommendation.persistence.RecommendationRepository;
+import com.rajesh.microservices.core.recommendation.persistence.RecommendationStatsRepository;
 import com.rajesh.util.exceptions.InvalidInputException;
+import com.rajesh.util.http.ConditionalRequests;
+import com.rajesh.util.http.ETags;
 import com.rajesh.util.http.ServiceUtil;
+import com.rajesh.util.metrics.CallMetrics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.RestController;
 
 import reactor.core.publisher.Flux;
@@ -21,59 +40,189 @@ public class RecommendationServiceImpl implements RecommendationService {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceImpl.class);
 
+    private static final String METRIC_NAME = "service.calls";
+
     private final ServiceUtil serviceUtil;
     private final RecommendationRepository repository;
+    private final RecommendationStatsRepository statsRepository;
     private final RecommendationMapper mapper;
+    private final CallMetrics callMetrics;
+
+    private final int topMaxLimit;
 
     @Autowired
-    public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper,
-            ServiceUtil serviceUtil) {
+    public RecommendationServiceImpl(RecommendationRepository repository,
+            RecommendationStatsRepository statsRepository, RecommendationMapper mapper, ServiceUtil serviceUtil,
+            CallMetrics callMetrics, @Value("${app.recommendation.top.max-limit}") int topMaxLimit) {
         this.repository = repository;
+        this.statsRepository = statsRepository;
         this.mapper = mapper;
         this.serviceUtil = serviceUtil;
+        this.callMetrics = callMetrics;
+        this.topMaxLimit = topMaxLimit;
     }
 
     @Override
-    public Recommendation createRecommendation(Recommendation body) {
-        if (body.getProductId() < 1)
-            throw new InvalidInputException("Invalid productId: " + body.getProductId());
-
-        RecommendationEntity entity = mapper.apiToEntity(body);
-        Mono<Recommendation> newEntity = repository.save(entity)
-                .log("Created a recommendation with recommendation id:" + body.getRecommendationId())
-                .onErrorMap(
-                        DuplicateKeyException.class,
-                        ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()
-                                + ", Recommendation Id:" + body.getRecommendationId()))
-                .map(e -> mapper.entityToApi(e));
-
-        return newEntity.toProcessor().block();
+    public Mono<Recommendation> createRecommendation(Recommendation body) {
+        return callMetrics.timedMono(METRIC_NAME, "createRecommendation", () -> {
+            if (body.getProductId() < 1)
+                throw new InvalidInputException("Invalid productId: " + body.getProductId());
+
+            RecommendationEntity entity = mapper.apiToEntity(body);
+            return repository.save(entity)
+                    .log("Created a recommendation with recommendation id:" + body.getRecommendationId())
+                    .onErrorMap(
+                            DuplicateKeyException.class,
+                            ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()
+                                    + ", Recommendation Id:" + body.getRecommendationId()))
+                    .flatMap(e -> statsRepository.addRatings(e.getProductId(), singletonList(e.getRating()))
+                            .thenReturn(e))
+                    .map(e -> mapper.entityToApi(e));
+        });
+    }
+
+    @Override
+    public Mono<BatchResult> createRecommendations(List<Recommendation> body) {
+        return callMetrics.timedMono(METRIC_NAME, "createRecommendations", () -> {
+            List<BatchItemFailure> failures = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            List<RecommendationEntity> entities = new ArrayList<>();
+            for (int i = 0; i < body.size(); i++) {
+                Recommendation recommendation = body.get(i);
+                if (recommendation.getProductId() < 1) {
+                    failures.add(new BatchItemFailure(i, "Invalid productId: " + recommendation.getProductId()));
+                } else {
+                    positions.add(i);
+                    entities.add(mapper.apiToEntity(recommendation));
+                }
+            }
+
+            return repository.insertAllSkippingDuplicates(entities)
+                    .log("Created a batch of " + entities.size() + " recommendations")
+                    .flatMap(duplicates -> addRatings(entities, duplicates).thenReturn(duplicates))
+                    .map(duplicates -> {
+                        for (int duplicate : duplicates) {
+                            int index = positions.get(duplicate);
+                            Recommendation recommendation = body.get(index);
+                            failures.add(new BatchItemFailure(index,
+                                    "Duplicate key, Product Id: " + recommendation.getProductId()
+                                            + ", Recommendation Id:" + recommendation.getRecommendationId()));
+                        }
+                        failures.sort(Comparator.comparingInt(BatchItemFailure::getIndex));
+                        return new BatchResult(entities.size() - duplicates.size(), failures);
+                    });
+        });
     }
 
     @Override
     public Flux<Recommendation> getRecommendations(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid productId: " + productId);
-
-        return repository.findByProductId(productId)
-                .log("Found the recommendation for product:" + productId)
-                .map(e -> mapper.entityToApi(e))
-                .map(e -> {
-                    e.setServiceAddress(serviceUtil.getServiceAddress());
-                    return e;
-                });
+        return callMetrics.timedFlux(METRIC_NAME, "getRecommendations", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            return repository.findByProductId(productId)
+                    .log("Found the recommendation for product:" + productId)
+                    .collectList()
+                    .flatMapMany(entities -> ConditionalRequests.ifNoneMatchAll(
+                            ETags.ofAll(entities, RecommendationEntity::getId, RecommendationEntity::getVersion),
+                            mapper.entityListToApiList(entities)))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
+    }
+
+    @Override
+    public Flux<Recommendation> getTopRecommendations(int productId, String sort, int limit) {
+        return callMetrics.timedFlux(METRIC_NAME, "getTopRecommendations", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+            if (!"rating".equals(sort))
+                throw new InvalidInputException("Unsupported sort: " + sort);
+            if (limit < 1 || limit > topMaxLimit)
+                throw new InvalidInputException("Expected a limit of 1 to " + topMaxLimit + ", got: " + limit);
+
+            // Walks the (productId, rating) index from the top, only the requested documents are read
+            return repository.findByProductIdOrderByRatingDesc(productId, PageRequest.of(0, limit))
+                    .log("Found the top recommendations for product:" + productId)
+                    .collectList()
+                    .flatMapMany(entities -> ConditionalRequests.ifNoneMatchAll(
+                            ETags.ofAll(entities, RecommendationEntity::getId, RecommendationEntity::getVersion),
+                            mapper.entityListToApiList(entities)))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
     }
 
     @Override
-    public void deleteRecommendations(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid productId: " + productId);
+    public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getRecommendationsByProductIds", () -> {
+            if (productIds.isEmpty())
+                throw new InvalidInputException("No productIds given");
+            for (int productId : productIds) {
+                if (productId < 1)
+                    throw new InvalidInputException("Invalid productId: " + productId);
+            }
+
+            return repository.findByProductIdIn(productIds)
+                    .log("Found the recommendations for products:" + productIds)
+                    .map(e -> mapper.entityToApi(e))
+                    .map(e -> {
+                        e.setServiceAddress(serviceUtil.getServiceAddress());
+                        return e;
+                    });
+        });
+    }
 
-        LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}",
-                productId);
-        repository.deleteAll(repository.findByProductId(productId)).toProcessor()
-                .block();
+    @Override
+    public Mono<RecommendationStats> getRecommendationStats(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "getRecommendationStats", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            // One document read, however many recommendations the product has. A product whose
+            // recommendations predate the statistics gets them computed on its first read.
+            return statsRepository.findById(productId)
+                    .switchIfEmpty(Mono.defer(() -> statsRepository.recomputeStats(productId)))
+                    .map(e -> mapper.statsEntityToApi(e, serviceUtil.getServiceAddress()));
+        });
+    }
+
+    @Override
+    public Mono<Long> deleteRecommendations(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteRecommendations", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}",
+                    productId);
+            return repository.deleteByProductId(productId)
+                    .log("Deleted the recommendations for product:" + productId)
+                    // Recomputed rather than deleted, so a recommendation created meanwhile is still counted
+                    .flatMap(count -> statsRepository.recomputeStats(productId).thenReturn(count));
+        });
+    }
 
+    /**
+     * Adds the ratings of the inserted entities to the statistics, with one
+     * update per product.
+     */
+    private Mono<Void> addRatings(List<RecommendationEntity> entities, List<Integer> duplicates) {
+        Set<Integer> skipped = new HashSet<>(duplicates);
+        Map<Integer, List<Integer>> ratingsByProductId = new HashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            if (!skipped.contains(i)) {
+                RecommendationEntity entity = entities.get(i);
+                ratingsByProductId.computeIfAbsent(entity.getProductId(), id -> new ArrayList<>())
+                        .add(entity.getRating());
+            }
+        }
+        return Flux.fromIterable(ratingsByProductId.entrySet())
+                .flatMap(ratings -> statsRepository.addRatings(ratings.getKey(), ratings.getValue()))
+                .then();
     }
 
 }
@@ -3,12 +3,15 @@ package com.rajesh.microservices.core.recommendation;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collections;
 import java.util.List;
 
 import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.api.core.recommendation.RecommendationStats;
 import com.rajesh.microservices.core.recommendation.persistence.RecommendationEntity;
+import com.rajesh.microservices.core.recommendation.persistence.RecommendationStatsEntity;
 import com.rajesh.microservices.core.recommendation.services.RecommendationMapper;
 
 import org.junit.Test;
@@ -74,4 +77,34 @@ public class MapperTests {
         assertEquals(api.getContent(), api2.getContent());
         assertNull(api2.getServiceAddress());
     }
+
+    @Test
+    public void mapperStatsTests() {
+
+        RecommendationStatsEntity entity = new RecommendationStatsEntity(1);
+        entity.setCount(3);
+        entity.setRatingSum(7);
+        entity.setMinRating(1);
+        entity.setMaxRating(3);
+        entity.getRatingHistogram().put("1", 1L);
+        entity.getRatingHistogram().put("3", 2L);
+
+        RecommendationStats api = mapper.statsEntityToApi(entity, "adr");
+
+        assertEquals(entity.getProductId(), api.getProductId());
+        assertEquals(entity.getCount(), api.getCount());
+        assertEquals(entity.getRatingSum(), api.getRateSum());
+        assertEquals(entity.getMinRating(), api.getMinRate());
+        assertEquals(entity.getMaxRating(), api.getMaxRate());
+        assertEquals(7.0 / 3, api.getAverageRate(), 0.0);
+        assertEquals(Long.valueOf(2), api.getRateHistogram().get(3));
+        assertEquals("adr", api.getServiceAddress());
+
+        RecommendationStats empty = mapper.statsEntityToApi(new RecommendationStatsEntity(2), "adr");
+
+        assertEquals(0, empty.getCount());
+        assertEquals(0.0, empty.getAverageRate(), 0.0);
+        assertNull(empty.getMinRate());
+        assertTrue(empty.getRateHistogram().isEmpty());
+    }
 }
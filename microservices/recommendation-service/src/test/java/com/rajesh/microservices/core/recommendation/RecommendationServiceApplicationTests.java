@@ -1,7 +1,14 @@
 package com.rajesh.microservices.core.recommendation;
 
+import java.util.List;
+import java.util.Set;
+
 import com.rajesh.api.core.recommendation.Recommendation;
+import com.rajesh.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.rajesh.microservices.core.recommendation.persistence.RecommendationRepository;
+import com.rajesh.microservices.core.recommendation.persistence.RecommendationStatsRepository;
+import com.rajesh.microservices.core.recommendation.services.RecommendationServiceImpl;
+import com.rajesh.util.http.GlobalControllerExceptionHandler;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -9,10 +16,17 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.http.HttpStatus.*;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -23,15 +37,37 @@ import reactor.core.publisher.Mono;
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.data.mongodb.port: 0" })
 public class RecommendationServiceApplicationTests {
 
+    @Autowired
+    private ApplicationContext context;
+
     @Autowired
     private WebTestClient client;
 
     @Autowired
     private RecommendationRepository repository;
 
+    @Autowired
+    private RecommendationStatsRepository statsRepository;
+
     @Before
     public void setupDb() {
         repository.deleteAll().block();
+        statsRepository.deleteAll().block();
+    }
+
+    /**
+     * The component index generated by the build is used whatever the profile,
+     * the service starts only if all of its beans are listed in it.
+     */
+    @Test
+    public void startsFromTheComponentIndex() {
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+        assertNotNull(index);
+
+        Set<String> components = index.getCandidateTypes("com.rajesh", Component.class.getName());
+        assertTrue(components.contains(RecommendationServiceImpl.class.getName()));
+        assertTrue(components.contains(GlobalControllerExceptionHandler.class.getName()));
+        assertTrue(context.containsBean("recommendationServiceImpl"));
     }
 
     @Test
@@ -51,6 +87,18 @@ public class RecommendationServiceApplicationTests {
                 .jsonPath("$[2].recommendationId").isEqualTo(3);
     }
 
+    @Test
+    public void getRecommendationsByProductIds() {
+
+        postAndVerifyRecommendation(1, 1, OK);
+        postAndVerifyRecommendation(1, 2, OK);
+        postAndVerifyRecommendation(2, 1, OK);
+        postAndVerifyRecommendation(3, 1, OK);
+
+        getAndVerifyRecommendationsByProductId("?productIds=1,2,113", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
     @Test
     public void duplicateError() {
 
@@ -70,6 +118,122 @@ public class RecommendationServiceApplicationTests {
         assertEquals(1, (long) repository.count().block());
     }
 
+    @Test
+    public void createRecommendationsInBatch() {
+
+        postAndVerifyRecommendation(1, 2, OK);
+
+        List<Recommendation> batch = asList(
+                new Recommendation(1, 1, "Author 1", 1, "Content 1", "SA"),
+                new Recommendation(1, 2, "Author 2", 2, "Content 2", "SA"),
+                new Recommendation(-1, 3, "Author 3", 3, "Content 3", "SA"),
+                new Recommendation(1, 1, "Author 1", 1, "Content 1", "SA"),
+                new Recommendation(2, 1, "Author 1", 1, "Content 1", "SA"));
+
+        client.post()
+                .uri("/recommendation/batch")
+                .bodyValue(batch)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(2)
+                .jsonPath("$.failures.length()").isEqualTo(3)
+                .jsonPath("$.failures[0].index").isEqualTo(1)
+                .jsonPath("$.failures[0].message").isEqualTo("Duplicate key, Product Id: 1, Recommendation Id:2")
+                .jsonPath("$.failures[1].message").isEqualTo("Invalid productId: -1")
+                .jsonPath("$.failures[2].index").isEqualTo(3);
+
+        assertEquals(3, (long) repository.count().block());
+    }
+
+    @Test
+    public void getTopRecommendations() {
+
+        int productId = 1;
+
+        postAndVerifyRecommendation(productId, 2, OK);
+        postAndVerifyRecommendation(productId, 5, OK);
+        postAndVerifyRecommendation(productId, 1, OK);
+        postAndVerifyRecommendation(productId, 4, OK);
+        postAndVerifyRecommendation(2, 6, OK);
+
+        getAndVerifyRecommendationsByProductId("?productId=" + productId + "&sort=rating&limit=2", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].rate").isEqualTo(5)
+                .jsonPath("$[1].rate").isEqualTo(4);
+
+        getAndVerifyRecommendationsByProductId("?productId=" + productId + "&limit=10", OK)
+                .jsonPath("$.length()").isEqualTo(4)
+                .jsonPath("$[3].rate").isEqualTo(1);
+    }
+
+    @Test
+    public void getTopRecommendationsInvalidParameters() {
+
+        getAndVerifyRecommendationsByProductId("?productId=1&sort=author&limit=2", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.message").isEqualTo("Unsupported sort: author");
+
+        getAndVerifyRecommendationsByProductId("?productId=1&limit=0", UNPROCESSABLE_ENTITY)
+                .jsonPath("$.message").isEqualTo("Expected a limit of 1 to 100, got: 0");
+    }
+
+    @Test
+    public void getRecommendationStats() {
+
+        int productId = 1;
+
+        postAndVerifyRecommendation(productId, 1, OK);
+        postAndVerifyRecommendation(productId, 3, OK);
+        postAndVerifyRecommendation(productId, 3, UNPROCESSABLE_ENTITY);
+
+        client.post()
+                .uri("/recommendation/batch")
+                .bodyValue(asList(
+                        new Recommendation(productId, 1, "Author 1", 1, "Content 1", "SA"),
+                        new Recommendation(productId, 4, "Author 4", 3, "Content 4", "SA")))
+                .exchange()
+                .expectStatus().isEqualTo(OK);
+
+        getAndVerifyRecommendationStats(productId, OK)
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.rateSum").isEqualTo(7)
+                .jsonPath("$.minRate").isEqualTo(1)
+                .jsonPath("$.maxRate").isEqualTo(3)
+                .jsonPath("$.rateHistogram.1").isEqualTo(1)
+                .jsonPath("$.rateHistogram.3").isEqualTo(2);
+
+        deleteAndVerifyRecommendationsByProductId(productId, OK);
+
+        getAndVerifyRecommendationStats(productId, OK)
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.minRate").doesNotExist();
+    }
+
+    @Test
+    public void getRecommendationStatsOfOlderRecommendations() {
+
+        int productId = 1;
+
+        // Saved around the service, like the recommendations created before the statistics were kept
+        repository.saveAll(asList(
+                new RecommendationEntity(productId, 1, "a", 2, "c"),
+                new RecommendationEntity(productId, 2, "a", 4, "c"))).blockLast();
+
+        getAndVerifyRecommendationStats(productId, OK)
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.rateSum").isEqualTo(6);
+
+        statsRepository.deleteAll().block();
+        postAndVerifyRecommendation(productId, 3, OK);
+
+        getAndVerifyRecommendationStats(productId, OK)
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.minRate").isEqualTo(2)
+                .jsonPath("$.maxRate").isEqualTo(4);
+    }
+
     @Test
     public void deleteRecommendations() {
 
@@ -79,10 +243,12 @@ public class RecommendationServiceApplicationTests {
         postAndVerifyRecommendation(productId, recommendationId, OK);
         assertEquals(1, repository.findByProductId(productId).collectList().block().size());
 
-        deleteAndVerifyRecommendationsByProductId(productId, OK);
+        deleteAndVerifyRecommendationsByProductId(productId, OK)
+                .jsonPath("$").isEqualTo(1);
         assertEquals(0, repository.findByProductId(productId).collectList().block().size());
 
-        deleteAndVerifyRecommendationsByProductId(productId, OK);
+        deleteAndVerifyRecommendationsByProductId(productId, OK)
+                .jsonPath("$").isEqualTo(0);
     }
 
     @Test
@@ -125,6 +291,17 @@ public class RecommendationServiceApplicationTests {
                 .expectBody();
     }
 
+    private WebTestClient.BodyContentSpec getAndVerifyRecommendationStats(int productId,
+            HttpStatus expectedStatus) {
+        return client.get()
+                .uri("/recommendation/stats?productId=" + productId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody();
+    }
+
     private WebTestClient.BodyContentSpec postAndVerifyRecommendation(int productId, int recommendationId,
             HttpStatus expectedStatus) {
         Recommendation recommendation = new Recommendation(productId, recommendationId, "Author " + recommendationId,
@@ -1,5 +1,6 @@
 package com.rajesh.microservices.core.review;
 
+import java.util.Locale;
 import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
@@ -8,10 +9,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
 
+import io.r2dbc.spi.ConnectionFactory;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
@@ -28,15 +34,33 @@ public class ReviewServiceApplication {
     }
 
     @Bean
+    @ConditionalOnProperty(name = "app.review.persistence", havingValue = "jpa")
     public Scheduler jdbcScheduler() {
         LOG.info("Creates a jdbcScheduler with connectionPoolSize = " + connectionPoolSize);
         return Schedulers.fromExecutor(Executors.newFixedThreadPool(connectionPoolSize));
     }
 
+    /**
+     * Creates the reviews table and the hibernate_sequence when R2DBC is used,
+     * there is no Hibernate to create them then. Hibernate keeps the sequence
+     * in a table on MySQL and in a sequence on H2, each has its own script.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.review.persistence", havingValue = "r2dbc")
+    public ConnectionFactoryInitializer reviewsSchemaInitializer(ConnectionFactory connectionFactory) {
+        ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(connectionFactory);
+        String platform = connectionFactory.getMetadata().getName().toLowerCase(Locale.ROOT);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema-r2dbc.sql"),
+                new ClassPathResource("schema-r2dbc-" + platform + ".sql")));
+        return initializer;
+    }
+
     public static void main(String[] args) {
         ConfigurableApplicationContext ctx = SpringApplication.run(ReviewServiceApplication.class, args);
 
-        String mysqlUri = ctx.getEnvironment().getProperty("spring.datasource.url");
+        String mysqlUri = ctx.getEnvironment().getProperty("spring.r2dbc.url",
+                ctx.getEnvironment().getProperty("spring.datasource.url"));
         LOG.info("Connected to MySQL: " + mysqlUri);
     }
 
@@ -0,0 +1,124 @@
+package com.rajesh.microservices.core.review.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Runs the blocking JPA repository calls on the jdbcScheduler, so they never
+ * hold up a Netty event loop.
+ */
+@Component
+@ConditionalOnProperty(name = "app.review.persistence", havingValue = "jpa")
+public class JpaReviewStore implements ReviewStore {
+
+    private final Scheduler scheduler;
+    private final ReviewRepository repository;
+    private final SessionFactory sessionFactory;
+    private final int streamFetchSize;
+
+    @Autowired
+    public JpaReviewStore(Scheduler scheduler, ReviewRepository repository, EntityManagerFactory entityManagerFactory,
+            @Value("${app.review.stream.fetch-size}") int streamFetchSize) {
+        this.scheduler = scheduler;
+        this.repository = repository;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    @Override
+    public Mono<ReviewEntity> insert(ReviewEntity entity) {
+        return async(() -> repository.save(entity));
+    }
+
+    @Override
+    public Mono<Void> insertAll(List<ReviewEntity> entities) {
+        return async(() -> repository.saveAll(entities)).then();
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductId(int productId) {
+        return async(() -> repository.findRowsByProductId(productId)).flatMapIterable(rows -> rows);
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds) {
+        return async(() -> repository.findRowsByProductIdIn(productIds)).flatMapIterable(rows -> rows);
+    }
+
+    /**
+     * Walks a JDBC result set that fetches streamFetchSize rows at a time, a
+     * server-side cursor on MySQL with useCursorFetch. The stateless session
+     * keeps no persistence context, so the rows that have been emitted can be
+     * collected. The rows are fetched on the jdbcScheduler as they are
+     * requested. The cursor and its connection are released on completion or
+     * cancel; a cancel that arrives while a row is being fetched is left to the
+     * fetching thread, so the result set is never closed under it.
+     */
+    @Override
+    public Flux<ReviewRow> streamByProductId(int productId) {
+        return Flux.<ReviewRow, Cursor>generate(
+                () -> new Cursor(sessionFactory.openStatelessSession(), productId, streamFetchSize),
+                (cursor, sink) -> {
+                    if (cursor.results.next()) {
+                        sink.next((ReviewRow) cursor.results.get(0));
+                    } else {
+                        sink.complete();
+                    }
+                    return cursor;
+                },
+                Cursor::close)
+                .subscribeOn(scheduler)
+                .cancelOn(scheduler);
+    }
+
+    @Override
+    public Mono<Long> deleteByProductId(int productId) {
+        return async(() -> (long) repository.deleteByProductId(productId));
+    }
+
+    private <T> Mono<T> async(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(scheduler);
+    }
+
+    private static class Cursor {
+
+        private final StatelessSession session;
+        private final ScrollableResults results;
+
+        Cursor(StatelessSession session, int productId, int fetchSize) {
+            this.session = session;
+            this.results = session
+                    .createQuery(ReviewRepository.SELECT_ROWS + "where r.productId = :productId order by r.reviewId",
+                            ReviewRow.class)
+                    .setParameter("productId", productId)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+        }
+
+        void close() {
+            try {
+                results.close();
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.rajesh.microservices.core.review.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.r2dbc.core.binding.BindMarker;
+import org.springframework.r2dbc.core.binding.BindMarkers;
+import org.springframework.r2dbc.core.binding.BindMarkersFactory;
+import org.springframework.r2dbc.core.binding.BindMarkersFactoryResolver;
+import org.springframework.r2dbc.core.binding.BindTarget;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the reviews table over R2DBC. The table, its indexes
+ * and the hibernate_sequence the ids are taken from are the ones JPA maps
+ * ReviewEntity to, see schema-r2dbc.sql, so the two modes can share a
+ * database.
+ */
+@Component
+@ConditionalOnProperty(name = "app.review.persistence", havingValue = "r2dbc")
+public class R2dbcReviewStore implements ReviewStore {
+
+    private static final String SELECT_ROWS = "SELECT id, version, product_id, review_id, author, subject, content "
+            + "FROM reviews ";
+    private static final String[] INSERT_COLUMNS = { "id", "version", "product_id", "review_id", "author",
+            "subject", "content" };
+
+    private final DatabaseClient client;
+    private final TransactionalOperator transactionalOperator;
+    private final BindMarkersFactory bindMarkersFactory;
+    private final ReviewIdSequence ids;
+
+    @Autowired
+    public R2dbcReviewStore(DatabaseClient client, TransactionalOperator transactionalOperator) {
+        this.client = client;
+        this.transactionalOperator = transactionalOperator;
+        this.bindMarkersFactory = BindMarkersFactoryResolver.resolve(client.getConnectionFactory());
+        this.ids = new ReviewIdSequence(client.getConnectionFactory());
+    }
+
+    @Override
+    public Mono<ReviewEntity> insert(ReviewEntity entity) {
+        return ids.nextIds(1).flatMap(reserved -> {
+            GenericExecuteSpec spec = client.sql("INSERT INTO reviews (" + String.join(", ", INSERT_COLUMNS)
+                    + ") VALUES (:id, :version, :productId, :reviewId, :author, :subject, :content)")
+                    .bind("id", reserved.get(0))
+                    .bind("version", entity.getVersion())
+                    .bind("productId", entity.getProductId())
+                    .bind("reviewId", entity.getReviewId());
+            spec = bindNullable(spec, "author", entity.getAuthor());
+            spec = bindNullable(spec, "subject", entity.getSubject());
+            spec = bindNullable(spec, "content", entity.getContent());
+
+            return spec.fetch().rowsUpdated().map(updated -> {
+                entity.setId(reserved.get(0));
+                return entity;
+            });
+        });
+    }
+
+    /**
+     * Sends the inserts as one batch of bindings of the same statement. The
+     * ids are reserved before the transaction starts.
+     */
+    @Override
+    public Mono<Void> insertAll(List<ReviewEntity> entities) {
+        if (entities.isEmpty()) {
+            return Mono.empty();
+        }
+
+        BindMarkers bindMarkers = bindMarkersFactory.create();
+        List<BindMarker> markers = new ArrayList<>();
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            markers.add(bindMarkers.next());
+        }
+        String sql = "INSERT INTO reviews (" + String.join(", ", INSERT_COLUMNS) + ") VALUES ("
+                + markers.stream().map(BindMarker::getPlaceholder).collect(Collectors.joining(", ")) + ")";
+
+        return ids.nextIds(entities.size()).flatMap(reserved -> client.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(sql);
+            BindTarget target = new StatementBindTarget(statement);
+            for (int i = 0; i < entities.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                ReviewEntity entity = entities.get(i);
+                bind(target, markers.get(0), reserved.get(i), Integer.class);
+                bind(target, markers.get(1), entity.getVersion(), Integer.class);
+                bind(target, markers.get(2), entity.getProductId(), Integer.class);
+                bind(target, markers.get(3), entity.getReviewId(), Integer.class);
+                bind(target, markers.get(4), entity.getAuthor(), String.class);
+                bind(target, markers.get(5), entity.getSubject(), String.class);
+                bind(target, markers.get(6), entity.getContent(), String.class);
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+        }).as(transactionalOperator::transactional).then());
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductId(int productId) {
+        return client.sql(SELECT_ROWS + "WHERE product_id = :productId ORDER BY review_id")
+                .bind("productId", productId)
+                .map(this::toRow)
+                .all();
+    }
+
+    @Override
+    public Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds) {
+        return client.sql(SELECT_ROWS + "WHERE product_id IN (:productIds) ORDER BY product_id, review_id")
+                .bind("productIds", productIds)
+                .map(this::toRow)
+                .all();
+    }
+
+    /**
+     * The driver emits the rows as they arrive, with backpressure, so this is
+     * the same query as findByProductId.
+     */
+    @Override
+    public Flux<ReviewRow> streamByProductId(int productId) {
+        return findByProductId(productId);
+    }
+
+    @Override
+    public Mono<Long> deleteByProductId(int productId) {
+        return client.sql("DELETE FROM reviews WHERE product_id = :productId")
+                .bind("productId", productId)
+                .fetch()
+                .rowsUpdated()
+                .map(Integer::longValue);
+    }
+
+    private ReviewRow toRow(Row row) {
+        return new ReviewRow(row.get("id", Integer.class), row.get("version", Integer.class),
+                row.get("product_id", Integer.class), row.get("review_id", Integer.class),
+                row.get("author", String.class), row.get("subject", String.class), row.get("content", String.class));
+    }
+
+    private GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private void bind(BindTarget target, BindMarker marker, Object value, Class<?> type) {
+        if (value == null) {
+            marker.bindNull(target, type);
+        } else {
+            marker.bind(target, value);
+        }
+    }
+
+    private static class StatementBindTarget implements BindTarget {
+
+        private final Statement statement;
+
+        StatementBindTarget(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public void bind(String identifier, Object value) {
+            statement.bind(identifier, value);
+        }
+
+        @Override
+        public void bind(int index, Object value) {
+            statement.bind(index, value);
+        }
+
+        @Override
+        public void bindNull(String identifier, Class<?> type) {
+            statement.bindNull(identifier, type);
+        }
+
+        @Override
+        public void bindNull(int index, Class<?> type) {
+            statement.bindNull(index, type);
+        }
+    }
+
+}
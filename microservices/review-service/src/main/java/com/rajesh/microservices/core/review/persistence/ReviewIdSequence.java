@@ -0,0 +1,89 @@
+package com.rajesh.microservices.core.review.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out review ids for R2DBC from the hibernate_sequence that JPA takes
+ * the ids of ReviewEntity from, the same way: a value of the sequence reserves
+ * that value and the INCREMENT - 1 after it (pooled-lo). So both persistence
+ * modes can write to one table. Hibernate keeps the sequence in a table on
+ * MySQL, which has no sequences, and in a sequence on H2. The sequence is read
+ * on a connection of its own, like Hibernate does, so no transaction of the
+ * inserts holds a lock on it.
+ */
+class ReviewIdSequence {
+
+    /**
+     * The increment_size of the generator of ReviewEntity.
+     */
+    static final int INCREMENT = 50;
+
+    private final ConnectionFactory connectionFactory;
+    private final boolean h2;
+
+    // The ids reserved but not handed out yet, next up to limit
+    private int next;
+    private int limit;
+
+    ReviewIdSequence(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.h2 = "H2".equals(connectionFactory.getMetadata().getName());
+    }
+
+    Mono<List<Integer>> nextIds(int count) {
+        return Mono.defer(() -> take(new ArrayList<>(count), count));
+    }
+
+    private Mono<List<Integer>> take(List<Integer> ids, int count) {
+        synchronized (this) {
+            while (ids.size() < count && next < limit) {
+                ids.add(next++);
+            }
+        }
+        if (ids.size() == count) {
+            return Mono.just(ids);
+        }
+
+        // A concurrent call may reserve its values at the same time and replace these, the ids left of the
+        // replaced values are skipped, never handed out twice
+        return Mono.usingWhen(connectionFactory.create(), this::reserve, Connection::close)
+                .flatMap(value -> {
+                    synchronized (this) {
+                        next = value;
+                        limit = value + INCREMENT;
+                    }
+                    return take(ids, count);
+                });
+    }
+
+    private Mono<Integer> reserve(Connection connection) {
+        if (h2) {
+            return Flux.from(connection.createStatement("SELECT NEXT VALUE FOR hibernate_sequence").execute())
+                    .flatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)))
+                    .next()
+                    .map(Long::intValue);
+        }
+
+        // The update only counts if no one else moved the value since it was read, else read it again
+        return Flux.from(connection.createStatement("SELECT next_val FROM hibernate_sequence").execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, Long.class)))
+                .single()
+                .flatMap(value -> Flux.from(connection
+                        .createStatement("UPDATE hibernate_sequence SET next_val = ? WHERE next_val = ?")
+                        .bind(0, value + INCREMENT)
+                        .bind(1, value)
+                        .execute())
+                        .flatMap(result -> result.getRowsUpdated())
+                        .reduce(0, Integer::sum)
+                        .filter(updated -> updated > 0)
+                        .map(updated -> value.intValue()))
+                .repeatWhenEmpty(attempts -> attempts);
+    }
+
+}
@@ -1,12 +1,43 @@
 package com.rajesh.microservices.core.review.persistence;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
 
+    String SELECT_ROWS = "select new com.rajesh.microservices.core.review.persistence.ReviewRow("
+            + "r.id, r.version, r.productId, r.reviewId, r.author, r.subject, r.content) from ReviewEntity r ";
+
     @Transactional(readOnly = true)
     List<ReviewEntity> findByProductId(int productId);
+
+    @Transactional(readOnly = true)
+    List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * Reads rows without hydrating entities. The reviews are found through the
+     * reviews_product_version_idx, their text columns come from the table.
+     */
+    @Transactional(readOnly = true)
+    @Query(SELECT_ROWS + "where r.productId = :productId order by r.reviewId")
+    List<ReviewRow> findRowsByProductId(@Param("productId") int productId);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_ROWS + "where r.productId in :productIds order by r.productId, r.reviewId")
+    List<ReviewRow> findRowsByProductIdIn(@Param("productIds") Collection<Integer> productIds);
+
+    /**
+     * A bulk delete, unlike a derived deleteBy it doesn't load the entities and
+     * check their versions one by one.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from ReviewEntity r where r.productId = :productId")
+    int deleteByProductId(@Param("productId") int productId);
 }
@@ -0,0 +1,35 @@
+package com.rajesh.microservices.core.review.persistence;
+
+import com.rajesh.api.core.review.Review;
+
+/**
+ * A review as it is read, selected straight into the API shape. Unlike a
+ * ReviewEntity it is not managed, no snapshot is kept for dirty checking. The
+ * id and version are only kept for the ETag.
+ */
+public class ReviewRow {
+
+    private final int id;
+    private final int version;
+    private final Review review;
+
+    public ReviewRow(int id, int version, int productId, int reviewId, String author, String subject,
+            String content) {
+        this.id = id;
+        this.version = version;
+        this.review = new Review(productId, reviewId, author, subject, content, null);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Review getReview() {
+        return review;
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.rajesh.microservices.core.review.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive access to the reviews table. Backed by JPA on the jdbcScheduler or
+ * by R2DBC, selected with "app.review.persistence: jpa|r2dbc". A review that
+ * already exists for the productId and reviewId fails the insert with a
+ * DataIntegrityViolationException in both.
+ */
+public interface ReviewStore {
+
+    Mono<ReviewEntity> insert(ReviewEntity entity);
+
+    /**
+     * Inserts the entities in one transaction, either all of them are inserted
+     * or none.
+     */
+    Mono<Void> insertAll(List<ReviewEntity> entities);
+
+    /**
+     * The reads select ReviewRows, ordered by productId and reviewId, rather
+     * than managed entities.
+     */
+    Flux<ReviewRow> findByProductId(int productId);
+
+    Flux<ReviewRow> findByProductIdIn(Collection<Integer> productIds);
+
+    /**
+     * Reads the reviews of the product as the subscriber requests them, rather
+     * than all of them up front like findByProductId.
+     */
+    Flux<ReviewRow> streamByProductId(int productId);
+
+    /**
+     * Deletes the reviews of the product with one statement.
+     *
+     * @return the number of deleted reviews
+     */
+    Mono<Long> deleteByProductId(int productId);
+}
@@ -1,24 +1,37 @@
 package com.rajesh.microservices.core.review.services;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import com.rajesh.api.core.BatchItemFailure;
+import com.rajesh.api.core.BatchResult;
 import com.rajesh.api.core.review.Review;
 import com.rajesh.api.core.review.ReviewService;
 import com.rajesh.microservices.core.review.persistence.ReviewEntity;
-import com.rajesh.microservices.core.review.persistence.ReviewRepository;
+import com.rajesh.microservices.core.review.persistence.ReviewRow;
+import com.rajesh.microservices.core.review.persistence.ReviewStore;
+import com.rajesh.util.cache.ReadThroughCache;
 import com.rajesh.util.exceptions.InvalidInputException;
+import com.rajesh.util.http.ConditionalRequests;
+import com.rajesh.util.http.ETags;
 import com.rajesh.util.http.ServiceUtil;
+import com.rajesh.util.metrics.CallMetrics;
 
-import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.annotation.RestController;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Flux;
-import reactor.core.scheduler.Scheduler;
-import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
 import static java.util.logging.Level.FINE;
 
 @RestController
@@ -26,66 +39,182 @@ public class ReviewServiceImpl implements ReviewService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
+    private static final String METRIC_NAME = "service.calls";
+
     private final ServiceUtil serviceUtil;
-    private final ReviewRepository repository;
+    private final ReviewStore store;
     private final ReviewMapper mapper;
+    private final CallMetrics callMetrics;
 
-    private final Scheduler scheduler;
+    /**
+     * The reviews of a product, local to this instance. The writes through this
+     * instance invalidate it, the writes through other instances show up when
+     * the entry expires.
+     */
+    private final ReadThroughCache<List<ReviewRow>> reviewsCache;
 
     @Autowired
-    public ReviewServiceImpl(Scheduler scheduler, ReviewRepository repository, ReviewMapper mapper,
-            ServiceUtil serviceUtil) {
-        this.scheduler = scheduler;
+    public ReviewServiceImpl(ReviewStore store, ReviewMapper mapper, ServiceUtil serviceUtil,
+            CallMetrics callMetrics, MeterRegistry meterRegistry,
+            @Value("${app.review.cache.max-size}") long cacheMaxSize,
+            @Value("${app.review.cache.ttl}") Duration cacheTtl) {
+        this.callMetrics = callMetrics;
         this.serviceUtil = serviceUtil;
-        this.repository = repository;
+        this.store = store;
         this.mapper = mapper;
+        this.reviewsCache = new ReadThroughCache<>("reviews", cacheTtl, cacheMaxSize, meterRegistry);
     }
 
     @Override
-    public Review createReview(Review body) {
-        if (body.getProductId() < 1)
-            throw new InvalidInputException("Invalid productId: " + body.getProductId());
-        try {
-            ReviewEntity entity = mapper.apiToEntity(body);
-            ReviewEntity newEntity = repository.save(entity);
-
-            LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId());
-            return mapper.entityToApi(newEntity);
-
-        } catch (DataIntegrityViolationException dive) {
-            throw new InvalidInputException(
-                    "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId());
-        }
+    public Mono<Review> createReview(Review body) {
+        return callMetrics.timedMono(METRIC_NAME, "createReview", () -> {
+            if (body.getProductId() < 1)
+                throw new InvalidInputException("Invalid productId: " + body.getProductId());
+
+            return store.insert(mapper.apiToEntity(body))
+                    .map(newEntity -> {
+                        LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(),
+                                body.getReviewId());
+                        return mapper.entityToApi(newEntity);
+                    })
+                    .onErrorMap(DataIntegrityViolationException.class, dive -> new InvalidInputException(
+                            "Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId()))
+                    .doFinally(signal -> reviewsCache.invalidate(body.getProductId()));
+        });
+    }
+
+    @Override
+    public Mono<BatchResult> createReviews(List<Review> body) {
+        return callMetrics.timedMono(METRIC_NAME, "createReviews", () -> {
+            Set<Integer> productIds = new HashSet<>();
+            body.forEach(r -> productIds.add(r.getProductId()));
+
+            return internalCreateReviews(body)
+                    .doFinally(signal -> productIds.forEach(reviewsCache::invalidate));
+        });
     }
 
     @Override
     public Flux<Review> getReviews(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid productId: " + productId);
+        return callMetrics.timedFlux(METRIC_NAME, "getReviews", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            LOG.info("Will get reviews for product with id={}", productId);
+            return reviewsCache.get(productId, () -> store.findByProductId(productId).collectList())
+                    .flatMapMany(entities -> ConditionalRequests.ifNoneMatchAll(
+                            ETags.ofAll(entities, ReviewRow::getId, ReviewRow::getVersion), toApiList(entities)))
+                    .log(null, FINE);
+        });
+    }
 
-        LOG.info("Will get reviews for product with id={}", productId);
-        return asyncFlux(() -> Flux.fromIterable(getByProductId(productId))).log(null, FINE);
+    @Override
+    public Flux<Review> getReviews(List<Integer> productIds) {
+        return callMetrics.timedFlux(METRIC_NAME, "getReviewsByProductIds", () -> {
+            if (productIds.isEmpty())
+                throw new InvalidInputException("No productIds given");
+            for (int productId : productIds) {
+                if (productId < 1)
+                    throw new InvalidInputException("Invalid productId: " + productId);
+            }
+
+            LOG.info("Will get reviews for products with ids={}", productIds);
+            return store.findByProductIdIn(productIds)
+                    .map(this::toApi)
+                    .log(null, FINE);
+        });
     }
 
     @Override
-    public void deleteReviews(int productId) {
-        if (productId < 1)
-            throw new InvalidInputException("Invalid productId: " + productId);
-        LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-        repository.deleteAll(repository.findByProductId(productId));
+    public Flux<Review> getReviewStream(int productId) {
+        return callMetrics.timedFlux(METRIC_NAME, "getReviewStream", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            // Mapped and written one by one, the first reviews go out before the last are read
+            return store.streamByProductId(productId)
+                    .map(this::toApi);
+        });
+    }
+
+    @Override
+    public Mono<Long> deleteReviews(int productId) {
+        return callMetrics.timedMono(METRIC_NAME, "deleteReviews", () -> {
+            if (productId < 1)
+                throw new InvalidInputException("Invalid productId: " + productId);
+
+            LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
+            return store.deleteByProductId(productId)
+                    .doOnNext(count -> LOG.debug("deleteReviews: deleted {} reviews", count))
+                    .doFinally(signal -> reviewsCache.invalidate(productId));
+        });
+    }
+
+    /**
+     * Inserts the reviews as one batch. Duplicates within the batch are sorted
+     * out up front; reviews that already exist are left to the unique index on
+     * productId and reviewId, which fails the batch and falls back to one
+     * insert at a time.
+     */
+    private Mono<BatchResult> internalCreateReviews(List<Review> body) {
+        Set<String> keys = new HashSet<>();
+        List<BatchItemFailure> failures = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < body.size(); i++) {
+            Review review = body.get(i);
+            if (review.getProductId() < 1) {
+                failures.add(new BatchItemFailure(i, "Invalid productId: " + review.getProductId()));
+            } else if (!keys.add(review.getProductId() + "/" + review.getReviewId())) {
+                failures.add(duplicateKeyFailure(i, review));
+            } else {
+                positions.add(i);
+            }
+        }
+
+        List<ReviewEntity> entities = new ArrayList<>();
+        positions.forEach(i -> entities.add(mapper.apiToEntity(body.get(i))));
+        return store.insertAll(entities)
+                .then(Mono.fromCallable(() -> {
+                    LOG.debug("createReviews: created {} review entities", entities.size());
+                    return new BatchResult(entities.size(), failures);
+                }))
+                .onErrorResume(DataIntegrityViolationException.class, dive -> {
+                    // Some of the reviews already exist, fall back to one insert at a time
+                    LOG.debug("createReviews: batch insert failed, retries the reviews one by one");
+                    return Flux.fromIterable(positions)
+                            .concatMap(i -> store.insert(mapper.apiToEntity(body.get(i)))
+                                    .thenReturn(true)
+                                    .onErrorResume(DataIntegrityViolationException.class, e -> {
+                                        failures.add(duplicateKeyFailure(i, body.get(i)));
+                                        return Mono.just(false);
+                                    }))
+                            .filter(created -> created)
+                            .count()
+                            .map(created -> {
+                                failures.sort(Comparator.comparingInt(BatchItemFailure::getIndex));
+                                return new BatchResult(created.intValue(), failures);
+                            });
+                });
+    }
 
+    private BatchItemFailure duplicateKeyFailure(int index, Review review) {
+        return new BatchItemFailure(index,
+                "Duplicate key, Product Id: " + review.getProductId() + ", Review Id:" + review.getReviewId());
     }
 
-    protected List<Review> getByProductId(int productId) {
-        List<ReviewEntity> entityList = repository.findByProductId(productId);
-        List<Review> list = mapper.entityListToApiList(entityList);
-        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+    private List<Review> toApiList(List<ReviewRow> rows) {
+        List<Review> list = rows.stream().map(this::toApi).collect(Collectors.toList());
         LOG.debug("getReviews: response size: {}", list.size());
         return list;
     }
 
-    private <T> Flux<T> asyncFlux(Supplier<Publisher<T>> publisherSupplier) {
-        return Flux.defer(publisherSupplier).subscribeOn(scheduler);
+    /**
+     * A copy of the review of the row, the rows may be shared through the cache.
+     */
+    private Review toApi(ReviewRow row) {
+        Review review = row.getReview();
+        return new Review(review.getProductId(), review.getReviewId(), review.getAuthor(), review.getSubject(),
+                review.getContent(), serviceUtil.getServiceAddress());
     }
 
 }
@@ -0,0 +1,2 @@
+-- The sequence Hibernate creates on H2 for the ids of ReviewEntity
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START WITH 1 INCREMENT BY 50;
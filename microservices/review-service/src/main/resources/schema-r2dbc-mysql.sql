@@ -0,0 +1,7 @@
+-- The table Hibernate keeps the sequence for the ids of ReviewEntity in on MySQL. Reviews inserted with
+-- the AUTO_INCREMENT id of earlier versions keep their ids, the sequence starts after the highest of them.
+CREATE TABLE IF NOT EXISTS hibernate_sequence (
+    next_val BIGINT
+);
+INSERT INTO hibernate_sequence (next_val)
+    SELECT COALESCE(MAX(id), 0) + 1 FROM reviews WHERE NOT EXISTS (SELECT * FROM hibernate_sequence);
@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS reviews (
+    id INT NOT NULL,
+    version INT NOT NULL,
+    product_id INT NOT NULL,
+    review_id INT NOT NULL,
+    author VARCHAR(255),
+    subject VARCHAR(255),
+    content VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT reviews_unique_idx UNIQUE (product_id, review_id),
+    INDEX reviews_product_version_idx (product_id, review_id, version)
+);
@@ -3,33 +3,61 @@ package com.rajesh.microservices.core.review;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.EntityManagerFactory;
+
 import com.rajesh.microservices.core.review.persistence.ReviewEntity;
 import com.rajesh.microservices.core.review.persistence.ReviewRepository;
+import com.rajesh.microservices.core.review.persistence.ReviewRow;
 
 import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @RunWith(SpringRunner.class)
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Transactional(propagation = Propagation.NOT_SUPPORTED)
 public class PersistenceTests {
 
+    /**
+     * The component scan of the application also picks up the services, which
+     * need a registry for their metrics; the slice has no metrics configured.
+     */
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @Autowired
     private ReviewRepository repository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private ReviewEntity savedEntity;
 
     @Before
@@ -54,6 +82,25 @@ public class PersistenceTests {
         assertEquals(2, repository.count());
     }
 
+    @Test
+    public void createAllInBatches() {
+
+        List<ReviewEntity> entities = new ArrayList<>();
+        for (int reviewId = 1; reviewId <= 120; reviewId++) {
+            entities.add(new ReviewEntity(2, reviewId, "a", "s", "c"));
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        repository.saveAll(entities);
+
+        // A few id lookups and three batches of inserts, rather than a statement per review
+        assertTrue("Statements: " + statistics.getPrepareStatementCount(),
+                statistics.getPrepareStatementCount() < 10);
+        assertEquals(120, repository.findByProductId(2).size());
+    }
+
     @Test
     public void update() {
         savedEntity.setAuthor("a2");
@@ -70,6 +117,16 @@ public class PersistenceTests {
         assertFalse(repository.existsById(savedEntity.getId()));
     }
 
+    @Test
+    public void deleteByProductId() {
+        repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+        assertEquals(2, repository.deleteByProductId(1));
+        assertEquals(0, repository.findByProductId(1).size());
+        assertEquals(1, repository.count());
+    }
+
     @Test
     public void getByProductId() {
         List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
@@ -78,6 +135,21 @@ public class PersistenceTests {
         assertEqualsReview(savedEntity, entityList.get(0));
     }
 
+    @Test
+    public void getRowsByProductId() {
+        repository.save(new ReviewEntity(1, 1, "a1", "s1", "c1"));
+        repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+        List<ReviewRow> rows = repository.findRowsByProductId(1);
+
+        assertThat(rows, Matchers.hasSize(2));
+        assertEquals(1, rows.get(0).getReview().getReviewId());
+        assertEquals("a1", rows.get(0).getReview().getAuthor());
+        assertEquals(savedEntity.getId(), rows.get(1).getId());
+        assertEquals(savedEntity.getVersion(), rows.get(1).getVersion());
+        assertEquals(savedEntity.getReviewId(), rows.get(1).getReview().getReviewId());
+    }
+
     @Test(expected = DataIntegrityViolationException.class)
     public void duplicateError() {
         ReviewEntity entity = new ReviewEntity(1, 2, "a", "s", "c");
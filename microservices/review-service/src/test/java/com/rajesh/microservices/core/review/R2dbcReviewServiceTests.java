@@ -0,0 +1,161 @@
+package com.rajesh.microservices.core.review;
+
+import static java.util.Arrays.asList;
+import static org.springframework.http.HttpStatus.*;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+import java.util.List;
+
+import com.rajesh.api.core.review.Review;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Mono;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("r2dbc")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///review-r2dbc-db;DB_CLOSE_DELAY=-1;MODE=MySQL", "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=" })
+public class R2dbcReviewServiceTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Before
+    public void setupDb() {
+        databaseClient.sql("DELETE FROM reviews").then().block();
+    }
+
+    @Test
+    public void createAndGetReviews() {
+
+        int productId = 1;
+
+        postAndVerifyReview(productId, 1, OK)
+                .jsonPath("$.reviewId").isEqualTo(1);
+        postAndVerifyReview(productId, 2, OK);
+
+        getAndVerifyReviews("?productId=" + productId, OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[1].author").isEqualTo("Author 2");
+    }
+
+    @Test
+    public void duplicateError() {
+
+        postAndVerifyReview(1, 1, OK);
+
+        postAndVerifyReview(1, 1, UNPROCESSABLE_ENTITY)
+                .jsonPath("$.path").isEqualTo("/review")
+                .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Review Id:1");
+    }
+
+    @Test
+    public void createReviewsWithDuplicates() {
+
+        postAndVerifyReview(1, 2, OK);
+
+        List<Review> batch = asList(review(1, 1), review(1, 2), review(1, 3), review(1, 1));
+
+        client.post()
+                .uri("/review/batch")
+                .bodyValue(batch)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(2)
+                .jsonPath("$.failures.length()").isEqualTo(2)
+                .jsonPath("$.failures[0].index").isEqualTo(1)
+                .jsonPath("$.failures[1].index").isEqualTo(3);
+
+        getAndVerifyReviews("?productId=1", OK)
+                .jsonPath("$.length()").isEqualTo(3);
+    }
+
+    @Test
+    public void getReviewsByProductIds() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(2, 1, OK);
+        postAndVerifyReview(3, 1, OK);
+
+        getAndVerifyReviews("?productIds=1,3", OK)
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[?(@.productId == 2)]").doesNotExist();
+    }
+
+    @Test
+    public void getReviewStream() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+
+        client.get()
+                .uri("/review/stream?productId=1")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Review.class).hasSize(2);
+    }
+
+    @Test
+    public void deleteReviews() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+
+        client.delete()
+                .uri("/review?productId=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").isEqualTo(2);
+
+        getAndVerifyReviews("?productId=1", OK)
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    private WebTestClient.BodyContentSpec getAndVerifyReviews(String query, HttpStatus expectedStatus) {
+        return client.get()
+                .uri("/review" + query)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+
+    private WebTestClient.BodyContentSpec postAndVerifyReview(int productId, int reviewId, HttpStatus expectedStatus) {
+        return client.post()
+                .uri("/review")
+                .body(Mono.just(review(productId, reviewId)), Review.class)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(expectedStatus)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody();
+    }
+
+    private Review review(int productId, int reviewId) {
+        return new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId,
+                "SA");
+    }
+
+}
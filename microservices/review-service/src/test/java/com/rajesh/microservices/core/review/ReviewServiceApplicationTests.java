@@ -1,40 +1,112 @@
 package com.rajesh.microservices.core.review;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
 
 import com.rajesh.api.core.review.Review;
+import com.rajesh.microservices.core.review.persistence.ReviewEntity;
 import com.rajesh.microservices.core.review.persistence.ReviewRepository;
+import com.rajesh.microservices.core.review.persistence.ReviewStore;
+import com.rajesh.microservices.core.review.services.ReviewServiceImpl;
+import com.rajesh.util.http.GlobalControllerExceptionHandler;
+import com.zaxxer.hikari.HikariDataSource;
 
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
 import static org.springframework.http.MediaType.*;
 
 import static org.springframework.http.HttpStatus.*;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
         "spring.datasource.url=jdbc:h2:mem:review-db" })
 public class ReviewServiceApplicationTests {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    @Autowired
+    private ApplicationContext context;
+
     @Autowired
     private WebTestClient client;
 
     @Autowired
     private ReviewRepository repository;
 
+    @Autowired
+    private ReviewStore store;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Fails every call that gets a JDBC connection on a non-blocking thread, a
+     * Netty event loop or a parallel scheduler worker, with a
+     * BlockingOperationError. The requests that do so respond with a 500.
+     * BlockHound stays installed for the rest of the JVM, so for the other
+     * tests too: the TransactionContext of a reactive transaction in the r2dbc
+     * mode takes its id from UUID.randomUUID, which reads a SecureRandom.
+     */
+    @BeforeClass
+    public static void installBlockingCallDetector() {
+        BlockHound.install(builder -> builder
+                .markAsBlocking(HikariDataSource.class, "getConnection", "()Ljava/sql/Connection;")
+                .allowBlockingCallsInside("java.util.UUID", "randomUUID"));
+    }
+
     @Before
     public void setupDb() {
         repository.deleteAll();
     }
 
+    /**
+     * The component index generated by the build is used whatever the profile,
+     * the service starts only if all of its beans are listed in it.
+     */
+    @Test
+    public void startsFromTheComponentIndex() {
+        CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(getClass().getClassLoader());
+        assertNotNull(index);
+
+        Set<String> components = index.getCandidateTypes("com.rajesh", Component.class.getName());
+        assertTrue(components.contains(ReviewServiceImpl.class.getName()));
+        assertTrue(components.contains(GlobalControllerExceptionHandler.class.getName()));
+        assertTrue(context.containsBean("reviewServiceImpl"));
+    }
+
     @Test
     public void getReviewsByProductId() {
 
@@ -54,6 +126,161 @@ public class ReviewServiceApplicationTests {
                 .jsonPath("$[2].reviewId").isEqualTo(3);
     }
 
+    @Test
+    public void getReviewStream() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+        postAndVerifyReview(2, 1, OK);
+
+        client.get()
+                .uri("/review/stream?productId=1")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(APPLICATION_NDJSON)
+                .expectBodyList(Review.class).hasSize(2);
+    }
+
+    @Test
+    public void cancelledStreamReleasesItsConnection() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+
+        // More streams than connections in the pool, each cancelled after the first review
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(store.streamByProductId(1), 1)
+                    .expectNextCount(1)
+                    .thenCancel()
+                    .verify();
+        }
+
+        getAndVerifyReviewsByProductId(1, OK)
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getReviewsFromCache() {
+
+        int productId = 5;
+
+        postAndVerifyReview(productId, 1, OK);
+        getAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$.length()").isEqualTo(1);
+
+        // Written around the service, so the cached reviews are served until they expire
+        repository.save(new ReviewEntity(productId, 2, "a", "s", "c"));
+        getAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$.length()").isEqualTo(1);
+
+        // Written through the service, which invalidates the cached reviews
+        postAndVerifyReview(productId, 3, OK);
+        getAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$.length()").isEqualTo(3);
+
+        assertTrue(meterRegistry.get("cache.hit.ratio").tag("cache", "reviews").gauge().value() > 0);
+    }
+
+    @Test
+    public void getReviewsByProductIds() {
+
+        postAndVerifyReview(1, 1, OK);
+        postAndVerifyReview(1, 2, OK);
+        postAndVerifyReview(2, 1, OK);
+        postAndVerifyReview(3, 1, OK);
+
+        getAndVerifyReviewsByProductId("?productIds=1,2,4", OK)
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[?(@.productId == 3)]").doesNotExist();
+    }
+
+    @Test
+    public void getReviewsConditionally() {
+
+        int productId = 1;
+
+        postAndVerifyReview(productId, 1, OK);
+
+        String etag = getAndVerifyReviewsByProductId(productId, OK)
+                .returnResult().getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        client.get()
+                .uri("/review?productId=" + productId)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isEqualTo(NOT_MODIFIED)
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+
+        postAndVerifyReview(productId, 2, OK);
+
+        client.get()
+                .uri("/review?productId=" + productId)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    public void getReviewsAsSmile() {
+
+        int productId = 1;
+
+        postAndVerifyReview(productId, 1, OK);
+
+        client.get()
+                .uri("/review?productId=" + productId)
+                .accept(APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_SMILE)
+                .expectBodyList(Review.class).hasSize(1);
+
+        client.get()
+                .uri("/review?productId=" + productId)
+                .accept(ALL)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON);
+    }
+
+    @Test
+    public void getReviewsCompressed() {
+
+        int productId = 1;
+
+        for (int reviewId = 1; reviewId <= 50; reviewId++) {
+            postAndVerifyReview(productId, reviewId, OK);
+        }
+
+        getReviewsWithEncoding(productId, "gzip")
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        // Without gzip in Accept-Encoding the response is left as is
+        getReviewsWithEncoding(productId, "identity")
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private WebTestClient.ResponseSpec getReviewsWithEncoding(int productId, String acceptEncoding) {
+        // The autowired client decompresses and drops Content-Encoding, so go through a plain HttpClient
+        WebTestClient rawClient = WebTestClient
+                .bindToServer(new ReactorClientHttpConnector(HttpClient.create()))
+                .baseUrl("http://localhost:" + port)
+                .build();
+        return rawClient.get()
+                .uri("/review?productId=" + productId)
+                .accept(APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+                .exchange()
+                .expectStatus().isEqualTo(OK);
+    }
+
     @Test
     public void duplicateError() {
 
@@ -75,6 +302,36 @@ public class ReviewServiceApplicationTests {
         assertEquals(1, repository.count());
     }
 
+    @Test
+    public void createReviewsInBatch() {
+
+        postAndVerifyReview(1, 2, OK);
+
+        List<Review> batch = asList(
+                new Review(1, 1, "Author 1", "Subject 1", "Content 1", "SA"),
+                new Review(1, 2, "Author 2", "Subject 2", "Content 2", "SA"),
+                new Review(-1, 3, "Author 3", "Subject 3", "Content 3", "SA"),
+                new Review(1, 1, "Author 1", "Subject 1", "Content 1", "SA"),
+                new Review(2, 1, "Author 1", "Subject 1", "Content 1", "SA"));
+
+        client.post()
+                .uri("/review/batch")
+                .bodyValue(batch)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(OK)
+                .expectHeader().contentType(APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(2)
+                .jsonPath("$.failures.length()").isEqualTo(3)
+                .jsonPath("$.failures[0].index").isEqualTo(1)
+                .jsonPath("$.failures[0].message").isEqualTo("Duplicate key, Product Id: 1, Review Id:2")
+                .jsonPath("$.failures[1].message").isEqualTo("Invalid productId: -1")
+                .jsonPath("$.failures[2].index").isEqualTo(3);
+
+        assertEquals(3, repository.count());
+    }
+
     @Test
     public void deleteReviews() {
 
@@ -84,10 +341,20 @@ public class ReviewServiceApplicationTests {
         postAndVerifyReview(productId, recommendationId, OK);
         assertEquals(1, repository.findByProductId(productId).size());
 
-        deleteAndVerifyReviewsByProductId(productId, OK);
+        deleteAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$").isEqualTo(1);
         assertEquals(0, repository.findByProductId(productId).size());
 
-        deleteAndVerifyReviewsByProductId(productId, OK);
+        deleteAndVerifyReviewsByProductId(productId, OK)
+                .jsonPath("$").isEqualTo(0);
+    }
+
+    @Test
+    public void jdbcOnNonBlockingThreadFails() {
+
+        StepVerifier.create(Mono.fromCallable(() -> repository.count()).subscribeOn(Schedulers.parallel()))
+                .expectErrorMatches(e -> NestedExceptionUtils.getRootCause(e) instanceof BlockingOperationError)
+                .verify();
     }
 
     @Test
@@ -0,0 +1,99 @@
+package com.rajesh.microservices.core.review;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.rajesh.microservices.core.review.persistence.R2dbcReviewStore;
+import com.rajesh.microservices.core.review.persistence.ReviewEntity;
+import com.rajesh.microservices.core.review.persistence.ReviewRepository;
+import com.rajesh.microservices.core.review.persistence.ReviewRow;
+import com.rajesh.microservices.core.review.persistence.ReviewStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * The service runs with JPA, as created by Hibernate, and an R2dbcReviewStore
+ * writes to the same database. Both take their ids from the same
+ * hibernate_sequence, so neither reuses an id of the other.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:review-shared-db;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa", "spring.datasource.password=" })
+public class SharedSchemaTests {
+
+    @Autowired
+    private ReviewStore jpaStore;
+
+    @Autowired
+    private ReviewRepository repository;
+
+    private ReviewStore r2dbcStore;
+
+    @Before
+    public void setupDb() {
+        repository.deleteAll();
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions
+                .parse("r2dbc:h2:mem:///review-shared-db;DB_CLOSE_DELAY=-1;MODE=MySQL").mutate()
+                .option(USER, "sa")
+                .option(PASSWORD, "")
+                .build());
+
+        // The scripts of the r2dbc mode leave the tables Hibernate created as they are
+        new ResourceDatabasePopulator(new ClassPathResource("schema-r2dbc.sql"),
+                new ClassPathResource("schema-r2dbc-h2.sql")).populate(connectionFactory).block();
+
+        r2dbcStore = new R2dbcReviewStore(DatabaseClient.create(connectionFactory),
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)));
+    }
+
+    @Test
+    public void writeWithBothPersistences() {
+
+        int productId = 1;
+
+        // More reviews than the 50 ids reserved at a time
+        jpaStore.insertAll(reviews(productId, 1, 60)).block();
+        r2dbcStore.insertAll(reviews(productId, 61, 120)).block();
+        jpaStore.insert(new ReviewEntity(productId, 121, "a", "s", "c")).block();
+        r2dbcStore.insert(new ReviewEntity(productId, 122, "a", "s", "c")).block();
+        jpaStore.insertAll(reviews(productId, 123, 130)).block();
+
+        List<ReviewRow> jpaRows = jpaStore.findByProductId(productId).collectList().block();
+        List<ReviewRow> r2dbcRows = r2dbcStore.findByProductId(productId).collectList().block();
+
+        assertEquals(130, jpaRows.size());
+        assertEquals(130, r2dbcRows.size());
+        assertEquals(130, r2dbcRows.stream().mapToInt(ReviewRow::getId).distinct().count());
+        assertEquals(jpaRows.stream().map(ReviewRow::getId).collect(Collectors.toList()),
+                r2dbcRows.stream().map(ReviewRow::getId).collect(Collectors.toList()));
+    }
+
+    private List<ReviewEntity> reviews(int productId, int firstReviewId, int lastReviewId) {
+        return IntStream.rangeClosed(firstReviewId, lastReviewId)
+                .mapToObj(reviewId -> new ReviewEntity(productId, reviewId, "a", "s", "c"))
+                .collect(Collectors.toList());
+    }
+
+}
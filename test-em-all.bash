@@ -119,6 +119,17 @@ assertEqual 213 $(echo $RESPONSE | jq .productId)
 assertEqual 3 $(echo $RESPONSE | jq ".recommendations | length")
 assertEqual 0 $(echo $RESPONSE | jq ".reviews | length")
 
+# Verify that a batch lookup returns the products found and reports the unknown productId (13)
+assertCurl 200 "curl \"http://$HOST:$PORT/product-composite?ids=1,13,113\" -s"
+assertEqual 2 $(echo $RESPONSE | jq ".products | length")
+assertEqual 113 $(echo $RESPONSE | jq ".products[1].productId")
+assertEqual 13 $(echo $RESPONSE | jq ".notFoundIds[0]")
+assertEqual 0 $(echo $RESPONSE | jq ".failedIds | length")
+
+# Verify that an export resumed after productId 1 streams the remaining products, one per line
+assertCurl 200 "curl \"http://$HOST:$PORT/product-composite/export?resumeAfter=1\" -s"
+assertEqual 113 $(echo "$RESPONSE" | head -1 | jq .productId)
+
 # Verify that a 422 (Unprocessable Entity) error is returned for a productId that is out of range (-1)
 assertCurl 422 "curl http://$HOST:$PORT/product-composite/-1 -s"
 assertEqual "\"Invalid productId: -1\"" "$(echo $RESPONSE | jq .message)"
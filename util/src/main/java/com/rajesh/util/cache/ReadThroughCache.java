@@ -0,0 +1,49 @@
+package com.rajesh.util.cache;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded in-memory cache keyed by productId. Values are only stored when the
+ * loader completes with a value, so errors and empty results are never cached.
+ * A load in flight is held as a future, shared by the gets of the same
+ * productId, which invalidate drops: a load that started before a write can
+ * not store what it read once the write has invalidated the productId. Hits,
+ * misses, evictions and size are published as "cache.*" metrics tagged with
+ * the cache name, along with the hit ratio since the start as
+ * "cache.hit.ratio".
+ */
+public class ReadThroughCache<V> {
+
+    private final AsyncCache<Integer, V> cache;
+
+    public ReadThroughCache(String name, Duration timeToLive, long maxSize, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maxSize)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .tag("cache", name)
+                .description("The ratio of cache requests which were hits")
+                .register(registry);
+    }
+
+    public Mono<V> get(int productId, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> Mono.fromFuture(cache.get(productId, (key, executor) -> loader.get().toFuture())));
+    }
+
+    public void invalidate(int productId) {
+        cache.synchronous().invalidate(productId);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.rajesh.util.exceptions;
+
+public class GatewayTimeoutException extends RuntimeException {
+    public GatewayTimeoutException() {
+    }
+
+    public GatewayTimeoutException(String message) {
+        super(message);
+    }
+
+    public GatewayTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public GatewayTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,24 @@
+package com.rajesh.util.http;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.stereotype.Component;
+
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Lets the server accept HTTP/2 over plain text (h2c) next to HTTP/1.1, Spring
+ * Boot only enables HTTP/2 together with TLS. Turned on with
+ * "app.server.h2c: true".
+ */
+@Component
+@ConditionalOnProperty(name = "app.server.h2c", havingValue = "true")
+public class CleartextHttp2Customizer implements NettyServerCustomizer {
+
+    @Override
+    public HttpServer apply(HttpServer httpServer) {
+        return httpServer.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.rajesh.util.http;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.reactive.ServerWebExchangeContextFilter;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts the current exchange in the Reactor context so the services can answer
+ * conditional GET requests. The ETag is set on the response and, when it
+ * matches the If-None-Match header of the request, the body is dropped and the
+ * response becomes a 304 Not Modified.
+ */
+@Component
+public class ConditionalRequests extends ServerWebExchangeContextFilter {
+
+    public static <T> Mono<T> ifNoneMatch(String etag, T body) {
+        return Mono.deferContextual(context -> {
+            Optional<ServerWebExchange> exchange = context.getOrEmpty(EXCHANGE_CONTEXT_ATTRIBUTE);
+            if (exchange.isPresent() && exchange.get().checkNotModified(etag)) {
+                return Mono.empty();
+            }
+            return Mono.just(body);
+        });
+    }
+
+    public static <T> Flux<T> ifNoneMatchAll(String etag, List<T> items) {
+        return ifNoneMatch(etag, items).flatMapIterable(list -> list);
+    }
+
+}
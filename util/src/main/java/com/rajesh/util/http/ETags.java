@@ -0,0 +1,54 @@
+package com.rajesh.util.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.function.Function;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * Weak entity tags derived from the {@code @Version} of persisted entities. A
+ * single entity is tagged with its id and version, a collection with a hash of
+ * all ids and versions, so any insert, update or delete gives a new tag. The
+ * tags are weak since the bodies also carry the address of the instance that
+ * served them.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(Object id, Object version) {
+        return weak(id + "-" + version);
+    }
+
+    public static <T> String ofAll(Collection<T> entities, Function<T, ?> id, Function<T, ?> version) {
+        StringBuilder versions = new StringBuilder();
+        entities.forEach(e -> versions.append(id.apply(e)).append('-').append(version.apply(e)).append(','));
+        return weak(hash(versions.toString()));
+    }
+
+    /**
+     * Tags a response that is put together from other tagged responses.
+     *
+     * @return the combined tag, null if any of the tags is missing
+     */
+    public static String combine(String... etags) {
+        StringBuilder combined = new StringBuilder();
+        for (String etag : etags) {
+            if (etag == null)
+                return null;
+            combined.append(etag).append(',');
+        }
+        return weak(hash(combined.toString()));
+    }
+
+    private static String hash(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String weak(String value) {
+        return "W/\"" + value + "\"";
+    }
+
+}
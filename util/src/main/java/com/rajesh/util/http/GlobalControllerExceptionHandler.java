@@ -1,5 +1,6 @@
 package com.rajesh.util.http;
 
+import com.rajesh.util.exceptions.GatewayTimeoutException;
 import com.rajesh.util.exceptions.InvalidInputException;
 import com.rajesh.util.exceptions.NotFoundException;
 
@@ -30,6 +31,12 @@ public class GlobalControllerExceptionHandler {
         return createHttpErrorInfo(HttpStatus.UNPROCESSABLE_ENTITY, request, ex);
     }
 
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    @ExceptionHandler(GatewayTimeoutException.class)
+    public @ResponseBody HttpErrorInfo handleGatewayTimeoutException(ServerHttpRequest request, Exception ex) {
+        return createHttpErrorInfo(HttpStatus.GATEWAY_TIMEOUT, request, ex);
+    }
+
     private HttpErrorInfo createHttpErrorInfo(HttpStatus httpStatus, ServerHttpRequest request, Exception ex) {
         final String path = request.getPath().pathWithinApplication().value();
         final String message = ex.getMessage();
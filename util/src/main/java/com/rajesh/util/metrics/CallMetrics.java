@@ -0,0 +1,89 @@
+package com.rajesh.util.metrics;
+
+import java.util.function.Supplier;
+
+import com.rajesh.util.exceptions.InvalidInputException;
+import com.rajesh.util.exceptions.NotFoundException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times calls with a percentile histogram per method and outcome. The outcome
+ * tag is one of success, not-found, invalid or error. Errors thrown while the
+ * call is set up, e.g. by input validation, are timed as well. Calls that are
+ * cancelled before they complete are not recorded.
+ */
+@Component
+public class CallMetrics {
+
+    public static final String SUCCESS = "success";
+    public static final String NOT_FOUND = "not-found";
+    public static final String INVALID = "invalid";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    /**
+     * Falls back to the global registry when there is no registry bean, e.g. in
+     * test slices without the metrics auto-configuration.
+     */
+    @Autowired
+    public CallMetrics(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    public <T> Mono<T> timedMono(String name, String method, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return Mono.defer(call)
+                    .doOnSuccess(value -> sample.stop(timer(name, method, SUCCESS)))
+                    .doOnError(ex -> sample.stop(timer(name, method, outcome(ex))));
+        });
+    }
+
+    public <T> Flux<T> timedFlux(String name, String method, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return Flux.defer(call)
+                    .doOnComplete(() -> sample.stop(timer(name, method, SUCCESS)))
+                    .doOnError(ex -> sample.stop(timer(name, method, outcome(ex))));
+        });
+    }
+
+    public void timed(String name, String method, Runnable call) {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            call.run();
+            sample.stop(timer(name, method, SUCCESS));
+        } catch (RuntimeException ex) {
+            sample.stop(timer(name, method, outcome(ex)));
+            throw ex;
+        }
+    }
+
+    static String outcome(Throwable ex) {
+        if (ex instanceof NotFoundException)
+            return NOT_FOUND;
+        if (ex instanceof InvalidInputException)
+            return INVALID;
+        return ERROR;
+    }
+
+    private Timer timer(String name, String method, String outcome) {
+        return Timer.builder(name)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+}
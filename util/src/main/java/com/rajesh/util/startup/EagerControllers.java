@@ -0,0 +1,23 @@
+package com.rajesh.util.startup;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Keeps the controllers, and with them the beans they depend on, eagerly
+ * initialized when "spring.main.lazy-initialization: true", as in the
+ * fast-startup profile. Only the beans off the request path are left lazy, so
+ * the first request does not pay for creating the services.
+ */
+@Component
+public class EagerControllers implements LazyInitializationExcludeFilter {
+
+    @Override
+    public boolean isExcluded(String beanName, BeanDefinition beanDefinition, Class<?> beanType) {
+        return beanType != null && AnnotatedElementUtils.hasAnnotation(beanType, RestController.class);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.rajesh.util.startup;
+
+import java.lang.management.ManagementFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shuts the service down as soon as it is ready to serve requests. Used by the
+ * training run of the cdsArchive Gradle task, the JVM dumps the classes loaded
+ * during startup into the archive when it exits. Turned on with
+ * "app.startup.exit-when-ready: true", and only in the cds-training profile
+ * on top of fast-startup, so a stray property cannot stop a running service.
+ */
+@Component
+@Profile("fast-startup & cds-training")
+@ConditionalOnProperty(name = "app.startup.exit-when-ready", havingValue = "true")
+public class ExitWhenReady implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExitWhenReady.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        LOG.info("Ready {} ms after the JVM started, exiting", ManagementFactory.getRuntimeMXBean().getUptime());
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.rajesh.util.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+public class ReadThroughCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ReadThroughCache<String> cache = new ReadThroughCache<>("test", Duration.ofMinutes(1), 10,
+            registry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void loadsOnceUntilInvalidated() {
+        StepVerifier.create(cache.get(1, this::load)).expectNext("value-1").verifyComplete();
+        StepVerifier.create(cache.get(1, this::load)).expectNext("value-1").verifyComplete();
+        assertEquals(1, loads.get());
+
+        cache.invalidate(1);
+
+        StepVerifier.create(cache.get(1, this::load)).expectNext("value-2").verifyComplete();
+        assertEquals(2, loads.get());
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter()
+                .count(), 0.0);
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "test").tag("result", "miss").functionCounter()
+                .count(), 0.0);
+        assertEquals(1.0 / 3, registry.get("cache.hit.ratio").tag("cache", "test").gauge().value(), 0.001);
+    }
+
+    @Test
+    public void doesNotCacheErrors() {
+        StepVerifier.create(cache.get(1, () -> Mono.error(new RuntimeException("failed")))).verifyError();
+        StepVerifier.create(cache.get(1, this::load)).expectNext("value-1").verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void doesNotStoreALoadThatWasInvalidatedInFlight() {
+        Sinks.One<String> staleRead = Sinks.one();
+
+        StepVerifier.create(cache.get(1, staleRead::asMono))
+                .then(() -> {
+                    // A write lands and invalidates while the read is in flight
+                    cache.invalidate(1);
+                    staleRead.tryEmitValue("stale");
+                })
+                .expectNext("stale")
+                .verifyComplete();
+
+        StepVerifier.create(cache.get(1, this::load)).expectNext("value-1").verifyComplete();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void sharesALoadInFlight() {
+        Sinks.One<String> read = Sinks.one();
+
+        Mono<String> first = cache.get(1, read::asMono);
+        Mono<String> second = cache.get(1, this::load);
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> read.tryEmitValue("value"))
+                .assertNext(values -> {
+                    assertEquals("value", values.getT1());
+                    assertEquals("value", values.getT2());
+                })
+                .verifyComplete();
+        assertEquals(0, loads.get());
+    }
+
+    private Mono<String> load() {
+        return Mono.fromSupplier(() -> "value-" + loads.incrementAndGet());
+    }
+}
@@ -0,0 +1,54 @@
+package com.rajesh.util.metrics;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+
+import com.rajesh.util.exceptions.InvalidInputException;
+import com.rajesh.util.exceptions.NotFoundException;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class CallMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CallMetrics callMetrics = new CallMetrics(
+            new StaticListableBeanFactory(singletonMap("registry", registry)).getBeanProvider(MeterRegistry.class));
+
+    @Test
+    public void tagsCallsByOutcome() {
+        StepVerifier.create(callMetrics.timedMono("test.calls", "get", () -> Mono.just(1)))
+                .expectNext(1).verifyComplete();
+        StepVerifier.create(callMetrics.timedFlux("test.calls", "get", () -> Flux.error(new NotFoundException())))
+                .verifyError(NotFoundException.class);
+        StepVerifier.create(callMetrics.timedMono("test.calls", "get", () -> {
+            throw new InvalidInputException("Invalid productId: -1");
+        })).verifyError(InvalidInputException.class);
+
+        assertEquals(1, count("get", CallMetrics.SUCCESS));
+        assertEquals(1, count("get", CallMetrics.NOT_FOUND));
+        assertEquals(1, count("get", CallMetrics.INVALID));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void timesAndRethrowsSynchronousErrors() {
+        try {
+            callMetrics.timed("test.calls", "delete", () -> {
+                throw new IllegalStateException();
+            });
+        } finally {
+            assertEquals(1, count("delete", CallMetrics.ERROR));
+        }
+    }
+
+    private long count(String method, String outcome) {
+        return registry.get("test.calls").tag("method", method).tag("outcome", outcome).timer().count();
+    }
+
+}